@@ -6,7 +6,7 @@ import com.mpmusc.core.*;
 
 public class GenderLambdaHandler implements RequestHandler<GenderDistributionRequest, GenderDistributionResult> {
     public GenderDistributionResult handleRequest(GenderDistributionRequest input, Context context) {
-        return new GenderDistributionService().analyze(input);
+        return AnalysisEngine.analyze(input);
     }
 }
 
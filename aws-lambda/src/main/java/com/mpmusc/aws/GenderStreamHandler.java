@@ -0,0 +1,131 @@
+package com.mpmusc.aws;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.mpmusc.core.AggregationQuery;
+import com.mpmusc.core.AnalysisEngine;
+import com.mpmusc.core.GenderDistributionRequest;
+import com.mpmusc.core.GenderDistributionResult;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raw I/O variant of {@link GenderLambdaHandler}: the request is read with a streaming JSON reader and the
+ * result is written field by field to the output stream, so the runtime's reflective POJO serializer is
+ * not involved on either side. The distribution and raw counts are written straight from the count matrix,
+ * without building their nested maps. The JSON has the same shape as the other handler's (null fields are
+ * left out).
+ * <p>
+ * Lambda handler setting: {@code com.mpmusc.aws.GenderStreamHandler::handleRequest}
+ */
+public class GenderStreamHandler implements RequestStreamHandler {
+
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        GenderDistributionResult result;
+        try {
+            result = AnalysisEngine.analyze(readRequest(input), false);
+        } catch (IOException | RuntimeException e) {
+            result = new GenderDistributionResult("Exception: " + e.getMessage());
+        }
+        JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        writeResult(writer, result);
+        writer.flush();
+    }
+
+    static GenderDistributionRequest readRequest(InputStream input) throws IOException {
+        GenderDistributionRequest request = new GenderDistributionRequest();
+        JsonReader reader = new JsonReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        try {
+            reader.beginObject();
+        } catch (EOFException e) {
+            return request; // empty payload
+        }
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "filename": request.setFilename(reader.nextString()); break;
+                case "path": request.setPath(reader.nextString()); break;
+                case "parser": request.setParser(reader.nextString()); break;
+                case "threads": request.setThreads(reader.nextInt()); break;
+                case "rawCounts": request.setRawCounts(reader.nextBoolean()); break;
+                case "simulateProcessingDelay": request.setSimulateProcessingDelay(reader.nextBoolean()); break;
+                case "shardOffset": request.setShardOffset(reader.nextLong()); break;
+                case "shardLength": request.setShardLength(reader.nextLong()); break;
+                case "shardIndex": request.setShardIndex(reader.nextInt()); break;
+                case "shardCount": request.setShardCount(reader.nextInt()); break;
+                // nested and rare: bound with Gson, which is only loaded when a request carries queries
+                case "queries": request.setQueries(QueryBinding.GSON.<List<AggregationQuery>>fromJson(reader, QueryBinding.TYPE)); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return request;
+    }
+
+    static void writeResult(JsonWriter writer, GenderDistributionResult result) throws IOException {
+        writer.beginObject();
+        result.writeDistribution(writer);
+        if (result.getAggregations() != null) {
+            writer.name("aggregations").beginObject();
+            for (Map.Entry<String, Map<String, Map<String, Double>>> query : result.getAggregations().entrySet()) {
+                writer.name(query.getKey());
+                writeNested(writer, query.getValue());
+            }
+            writer.endObject();
+        }
+        result.writeCounts(writer);
+        if (result.getRowCount() != null) writer.name("rowCount").value(result.getRowCount());
+        writer.name("executionTimeMillis").value(result.getExecutionTimeMillis());
+        if (result.getPhaseNanos() != null) {
+            writer.name("phaseNanos").beginObject();
+            for (Map.Entry<String, Long> phase : result.getPhaseNanos().entrySet()) {
+                writer.name(phase.getKey()).value(phase.getValue());
+            }
+            writer.endObject();
+        }
+        if (result.getCacheHit() != null) writer.name("cacheHit").value(result.getCacheHit());
+        if (result.getContainerId() != null) writer.name("containerId").value(result.getContainerId());
+        if (result.getInvocationSequence() != null) writer.name("invocationSequence").value(result.getInvocationSequence());
+        if (result.getColdStart() != null) writer.name("coldStart").value(result.getColdStart());
+        if (result.getJvmInitMillis() != null) writer.name("jvmInitMillis").value(result.getJvmInitMillis());
+        if (result.getError() != null) writer.name("error").value(result.getError());
+        writer.endObject();
+    }
+
+    private static void writeNested(JsonWriter writer, Map<String, Map<String, Double>> values) throws IOException {
+        writer.beginObject();
+        for (Map.Entry<String, Map<String, Double>> outer : values.entrySet()) {
+            writer.name(outer.getKey()).beginObject();
+            for (Map.Entry<String, Double> inner : outer.getValue().entrySet()) {
+                writer.name(inner.getKey()).value(inner.getValue());
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    private static final class QueryBinding {
+        static final Gson GSON = new Gson();
+        static final Type TYPE = new TypeToken<List<AggregationQuery>>() { }.getType();
+    }
+}
@@ -4,9 +4,9 @@ import com.microsoft.azure.functions.*;
 import com.microsoft.azure.functions.annotation.AuthorizationLevel;
 import com.microsoft.azure.functions.annotation.FunctionName;
 import com.microsoft.azure.functions.annotation.HttpTrigger;
+import com.mpmusc.core.AnalysisEngine;
 import com.mpmusc.core.GenderDistributionRequest;
 import com.mpmusc.core.GenderDistributionResult;
-import com.mpmusc.core.GenderDistributionService;
 
 import java.util.Optional;
 
@@ -17,8 +17,7 @@ public class GenderFunction {
             HttpRequestMessage<Optional<GenderDistributionRequest>> request,
             final ExecutionContext context
     ) {
-        GenderDistributionService service = new GenderDistributionService();
-        GenderDistributionResult result = service.analyze(request.getBody().orElse(null));
+        GenderDistributionResult result = AnalysisEngine.analyze(request.getBody().orElse(null));
 
         return request.createResponseBuilder(HttpStatus.OK)
                 .body(result)
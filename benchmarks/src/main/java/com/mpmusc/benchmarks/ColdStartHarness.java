@@ -0,0 +1,105 @@
+package com.mpmusc.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures JVM startup plus the first analysis, the way a cold function container sees it, by launching
+ * {@code com.mpmusc.core.ColdStart probe} in fresh JVMs.
+ * <pre>
+ *   java -cp benchmarks.jar com.mpmusc.benchmarks.ColdStartHarness --jar before.jar
+ *        [--after-jar after.jar] [--jsa app-cds.jsa] [--runs 10] [--csv data.csv]
+ * </pre>
+ * "before" runs the jar with default JVM flags; "after" (when an archive or second jar is given) runs the
+ * other jar with the AppCDS archive and the launcher flags of the coldstart profile. The child JVMs use this
+ * JVM's {@code java}, which must be the one that wrote the archive, otherwise the archive is silently ignored.
+ */
+public class ColdStartHarness {
+
+    private static final String PROBE_PREFIX = "firstInvocationNanos=";
+    static final List<String> LAUNCHER_FLAGS = Arrays.asList("-Xshare:auto", "-XX:TieredStopAtLevel=1");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String jar = null;
+        String afterJar = null;
+        String jsa = null;
+        String csv = null;
+        int runs = 10;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--jar": jar = args[i + 1]; break;
+                case "--after-jar": afterJar = args[i + 1]; break;
+                case "--jsa": jsa = args[i + 1]; break;
+                case "--csv": csv = args[i + 1]; break;
+                case "--runs": runs = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (jar == null) {
+            System.err.println("Usage: ColdStartHarness --jar before.jar [--after-jar after.jar] [--jsa app-cds.jsa] "
+                    + "[--runs 10] [--csv data.csv]");
+            System.exit(1);
+        }
+
+        report("before", measure(jar, Collections.<String>emptyList(), csv, runs));
+        if (afterJar != null || jsa != null) {
+            List<String> flags = new ArrayList<>(LAUNCHER_FLAGS);
+            if (jsa != null) flags.add("-XX:SharedArchiveFile=" + jsa);
+            report("after", measure(afterJar != null ? afterJar : jar, flags, csv, runs));
+        }
+    }
+
+    private static long[][] measure(String jar, List<String> jvmFlags, String csv, int runs)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmFlags);
+        command.addAll(Arrays.asList("-cp", jar, "com.mpmusc.core.ColdStart", "probe"));
+        if (csv != null) command.add(csv);
+
+        long[][] samples = new long[2][runs]; // wall nanos, first invocation nanos
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String probeLine = null;
+            StringBuilder output = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // JVM warnings (e.g. an archive that does not match the jar) share the output stream
+                    if (line.startsWith(PROBE_PREFIX)) probeLine = line;
+                    else output.append(line).append('\n');
+                }
+            }
+            int exit = process.waitFor();
+            samples[0][run] = System.nanoTime() - start;
+            if (exit != 0 || probeLine == null) {
+                throw new IllegalStateException("Probe failed (exit " + exit + "): " + output);
+            }
+            if (output.length() > 0 && run == 0) System.err.print(output);
+            samples[1][run] = Long.parseLong(probeLine.substring(PROBE_PREFIX.length()).split(" ")[0]);
+        }
+        return samples;
+    }
+
+    private static void report(String label, long[][] samples) {
+        System.out.printf("%-6s  process wall ms: median %7.1f  p90 %7.1f  min %7.1f%n", label,
+                millis(samples[0], 0.5), millis(samples[0], 0.9), millis(samples[0], 0.0));
+        System.out.printf("%-6s  first call ms:   median %7.1f  p90 %7.1f  min %7.1f%n", label,
+                millis(samples[1], 0.5), millis(samples[1], 0.9), millis(samples[1], 0.0));
+    }
+
+    private static double millis(long[] nanos, double quantile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.round(quantile * (sorted.length - 1))] / 1e6;
+    }
+}
@@ -0,0 +1,73 @@
+package com.mpmusc.benchmarks;
+
+import com.mpmusc.core.GenderDistributionRequest;
+import com.mpmusc.core.GenderDistributionResult;
+import com.mpmusc.core.GenderDistributionService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link GenderDistributionService#analyze} on synthetic datasets of increasing size.
+ * Besides analyses per second, the {@code rows} counter reports rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class GenderDistributionBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({GenderDistributionRequest.PARSER_BYTES, GenderDistributionRequest.PARSER_SPLIT})
+    public String parser;
+
+    @Param({"false", "true"})
+    public boolean simulateProcessingDelay;
+
+    private final GenderDistributionService service = new GenderDistributionService();
+    private GenderDistributionRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        request = new GenderDistributionRequest();
+        request.setPath(SyntheticEmployees.cached(rows).getAbsolutePath());
+        request.setParser(parser);
+        request.setSimulateProcessingDelay(simulateProcessingDelay);
+    }
+
+    /**
+     * Per-iteration counters; JMH reports them as rates next to the primary score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long rows;
+    }
+
+    @Benchmark
+    public GenderDistributionResult analyze(Counters counters) {
+        GenderDistributionResult result = service.analyze(request);
+        if (result.getError() != null) {
+            throw new IllegalStateException(result.getError());
+        }
+        counters.rows += result.getRowCount();
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package com.mpmusc.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * Writes a synthetic employee CSV in the layout of the {@code fake_employees} datasets:
+ * <pre>
+ *   employee_id,name,gender,age,department,salary,hire_date
+ * </pre>
+ * Gender is column 2 and department column 4, as the analysis expects. The content only depends on
+ * the row count and the seed, so every run (and every machine) benchmarks exactly the same bytes.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.mpmusc.benchmarks.SyntheticEmployees rows output.csv [seed]}
+ */
+public final class SyntheticEmployees {
+
+    public static final long DEFAULT_SEED = 42L;
+
+    private static final String HEADER = "employee_id,name,gender,age,department,salary,hire_date";
+    private static final String[] DEPARTMENTS = {
+            "Engineering", "Education", "Finance", "Legal", "Healthcare", "HR", "IT", "Manufacturing", "Marketing"};
+    // percentage of Female / Male per department, roughly as in the real dataset; the rest is Non-binary
+    private static final int[][] GENDER_SPLIT = {
+            {22, 75}, {54, 40}, {45, 50}, {44, 50}, {63, 30}, {63, 30}, {27, 70}, {18, 80}, {45, 50}};
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+            "Alex", "Sam", "Taylor", "Jordan", "Casey", "Morgan"};
+    private static final String[] LAST_NAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez"};
+
+    private SyntheticEmployees() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SyntheticEmployees <rows> <output.csv> [seed]");
+            System.exit(1);
+        }
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        write(new File(args[1]), Integer.parseInt(args[0]), seed);
+    }
+
+    /**
+     * Returns the cached dataset for {@code rows} in the temp directory, generating it on first use.
+     */
+    public static File cached(int rows) throws IOException {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "mpmusc-bench");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File file = new File(dir, "fake_employees_" + rows + "_" + DEFAULT_SEED + ".csv");
+        if (!file.isFile()) {
+            File partial = File.createTempFile("generate", ".part", dir);
+            try {
+                write(partial, rows, DEFAULT_SEED);
+                Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(partial.toPath());
+            }
+        }
+        return file;
+    }
+
+    public static void write(File target, int rows, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(target.toPath()), StandardCharsets.UTF_8), 1 << 16)) {
+            out.write(HEADER);
+            out.write('\n');
+            StringBuilder line = new StringBuilder(96);
+            for (int id = 1; id <= rows; id++) {
+                int department = random.nextInt(DEPARTMENTS.length);
+                int roll = random.nextInt(100);
+                int[] split = GENDER_SPLIT[department];
+                String gender = roll < split[0] ? "Female" : roll < split[0] + split[1] ? "Male" : "Non-binary";
+
+                line.setLength(0);
+                line.append(id).append(',')
+                        .append(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]).append(' ')
+                        .append(LAST_NAMES[random.nextInt(LAST_NAMES.length)]).append(',')
+                        .append(gender).append(',')
+                        .append(22 + random.nextInt(44)).append(',')
+                        .append(DEPARTMENTS[department]).append(',')
+                        .append(30000 + random.nextInt(150000)).append(',')
+                        .append(2000 + random.nextInt(25)).append('-')
+                        .append(pad(1 + random.nextInt(12))).append('-')
+                        .append(pad(1 + random.nextInt(28)))
+                        .append('\n');
+                out.append(line);
+            }
+        }
+    }
+
+    private static String pad(int value) {
+        return value < 10 ? "0" + value : Integer.toString(value);
+    }
+}
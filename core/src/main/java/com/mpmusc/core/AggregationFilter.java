@@ -0,0 +1,35 @@
+package com.mpmusc.core;
+
+import java.util.List;
+
+/**
+ * Keeps only rows whose (trimmed) value in {@code column} equals one of {@code values}.
+ */
+public class AggregationFilter {
+    private String column;
+    private List<String> values;
+
+    public AggregationFilter() {
+    }
+
+    public AggregationFilter(String column, List<String> values) {
+        this.column = column;
+        this.values = values;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    public void setValues(List<String> values) {
+        this.values = values;
+    }
+}
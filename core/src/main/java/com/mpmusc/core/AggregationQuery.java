@@ -0,0 +1,70 @@
+package com.mpmusc.core;
+
+import java.util.List;
+
+/**
+ * One breakdown evaluated by the generic group-by engine: rows passing all filters are grouped by the
+ * groupBy columns and counted per value of the pivot column.
+ * Columns are referenced by header name or by zero based index ("4") of a header column.
+ */
+public class AggregationQuery {
+    /** Count rows per group and pivot value. */
+    public static final String OUTPUT_COUNT = "count";
+    /** Share of each pivot value within its group, in percent (default). */
+    public static final String OUTPUT_PERCENTAGE = "percentage";
+
+    private String name;                  // key in GenderDistributionResult.aggregations; "query<i>" when not set
+    private List<String> groupBy;         // empty: a single group named "all"; several columns are joined with '|'
+    private String pivot;                 // optional; without it every group has one "count"/"percentage" entry
+    private List<AggregationFilter> filters;
+    private String output;                // OUTPUT_PERCENTAGE when not set
+
+    public AggregationQuery() {
+    }
+
+    public AggregationQuery(String name, List<String> groupBy, String pivot) {
+        this.name = name;
+        this.groupBy = groupBy;
+        this.pivot = pivot;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public void setGroupBy(List<String> groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public String getPivot() {
+        return pivot;
+    }
+
+    public void setPivot(String pivot) {
+        this.pivot = pivot;
+    }
+
+    public List<AggregationFilter> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(List<AggregationFilter> filters) {
+        this.filters = filters;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public void setOutput(String output) {
+        this.output = output;
+    }
+}
@@ -0,0 +1,164 @@
+package com.mpmusc.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide entry point for the function handlers. A warm container keeps its static state, so
+ * the engine keeps two things across invocations:
+ * <ul>
+ *   <li>the dataset in columnar form ({@link DatasetCache}, encoded in the background after the first scan),
+ *       so a new request on a known file that names no parser or thread count counts from memory instead of
+ *       scanning the CSV again;</li>
+ *   <li>the results of recent requests, so a repeated request is answered without counting at all.</li>
+ * </ul>
+ * Both are guarded by a {@link DatasetFingerprint} of the input files, so a changed dataset is read again.
+ * Cached results are shared between callers and must be treated as read-only.
+ */
+public final class AnalysisEngine {
+
+    private static final int MAX_RESULTS = 256;
+
+    private static final DatasetCache DATASETS = new DatasetCache();
+    private static final GenderDistributionService SERVICE = new GenderDistributionService(DATASETS);
+    private static final Map<String, CachedResult> RESULTS = Collections.synchronizedMap(
+            new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                    return size() > MAX_RESULTS;
+                }
+            });
+
+    private AnalysisEngine() {
+    }
+
+    /**
+     * Analyzes the request and stamps the result with this container's identity and invocation sequence.
+     */
+    public static GenderDistributionResult analyze(GenderDistributionRequest request) {
+        return analyze(request, true);
+    }
+
+    /**
+     * @param resultMaps false to leave the distribution and raw counts as counts where possible: handlers that
+     *                   stream their response write them with {@link GenderDistributionResult#writeDistribution}
+     *                   and {@link GenderDistributionResult#writeCounts} instead of building the nested maps
+     */
+    public static GenderDistributionResult analyze(GenderDistributionRequest request, boolean resultMaps) {
+        long sequence = ContainerInfo.nextInvocation();
+        Long jvmInitMillis = sequence == 1 ? ContainerInfo.millisSinceProcessStart() : null;
+        GenderDistributionResult result = evaluate(request, resultMaps);
+        ContainerInfo.stamp(result, sequence, jvmInitMillis);
+        return result;
+    }
+
+    private static GenderDistributionResult evaluate(GenderDistributionRequest request, boolean resultMaps) {
+        long startTime = System.currentTimeMillis();
+        String key = request != null ? cacheKey(request) : null;
+        if (key == null) {
+            return SERVICE.analyze(request, resultMaps);
+        }
+
+        try {
+            List<File> files = SERVICE.inputFiles(request);
+            List<DatasetFingerprint> fingerprints = new ArrayList<>(files.size());
+            for (File file : files) fingerprints.add(DATASETS.fingerprint(file));
+            CachedResult cached = RESULTS.get(key);
+            if (cached != null && cached.matches(files, fingerprints)) {
+                return hit(cached.result, System.currentTimeMillis() - startTime, resultMaps);
+            }
+
+            GenderDistributionResult result = SERVICE.analyze(request, resultMaps);
+            if (result.getError() == null) {
+                RESULTS.put(key, new CachedResult(files, fingerprints, result));
+            }
+            return result;
+        } catch (Exception e) {
+            return new GenderDistributionResult("Exception: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops every cached dataset and result.
+     */
+    public static void clear() {
+        RESULTS.clear();
+        DATASETS.clear();
+    }
+
+    /**
+     * Everything in the request that affects the result, or null when the request must not be cached
+     * (simulated processing delay: the work is the point of the request).
+     */
+    static String cacheKey(GenderDistributionRequest request) {
+        if (Boolean.TRUE.equals(request.getSimulateProcessingDelay())) return null;
+        StringBuilder key = new StringBuilder(64);
+        append(key, request.getPath());
+        append(key, request.getFilename());
+        append(key, request.getParser() != null ? request.getParser().toLowerCase() : null);
+        append(key, request.getRawCounts());
+        append(key, request.getShardOffset());
+        append(key, request.getShardLength());
+        append(key, request.getShardIndex());
+        append(key, request.getShardCount());
+        if (request.getQueries() != null) {
+            for (AggregationQuery query : request.getQueries()) {
+                append(key, query.getName());
+                append(key, query.getGroupBy());
+                append(key, query.getPivot());
+                append(key, query.getOutput());
+                if (query.getFilters() != null) {
+                    for (AggregationFilter filter : query.getFilters()) {
+                        append(key, filter.getColumn());
+                        append(key, filter.getValues());
+                    }
+                }
+                key.append(';');
+            }
+        }
+        return key.toString();
+    }
+
+    private static void append(StringBuilder key, Object value) {
+        key.append(value).append('\u0000');
+    }
+
+    private static GenderDistributionResult hit(GenderDistributionResult cached, long executionTimeMillis,
+                                                boolean resultMaps) {
+        GenderDistributionResult result = new GenderDistributionResult(cached.getDistribution(), executionTimeMillis);
+        result.setAggregations(cached.getAggregations());
+        result.setCounts(cached.getCounts());
+        result.deferLike(cached);
+        if (resultMaps) result.buildDeferred(); // the cached result may come from a streaming handler
+        result.setRowCount(cached.getRowCount());
+        result.setCacheHit(true); // container fields are per invocation and not copied
+        return result;
+    }
+
+    private static final class CachedResult {
+        final List<File> files;
+        final List<DatasetFingerprint> fingerprints;
+        final GenderDistributionResult result;
+
+        CachedResult(List<File> files, List<DatasetFingerprint> fingerprints, GenderDistributionResult result) {
+            this.files = files;
+            this.fingerprints = fingerprints;
+            this.result = result;
+        }
+
+        /**
+         * True when the request still resolves to the same files and none of their contents changed.
+         */
+        boolean matches(List<File> currentFiles, List<DatasetFingerprint> current) {
+            if (!currentFiles.equals(files)) return false;
+            for (int i = 0; i < files.size(); i++) {
+                if (!fingerprints.get(i).sameContent(current.get(i))) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.mpmusc.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns UTF-8 byte sequences as dense int ids (0, 1, 2, ...) in first-seen order.
+ * Lookups of known values compare bytes in place and allocate nothing; the value is decoded
+ * to a {@link String} only once, when it is added.
+ */
+class ByteDictionary {
+
+    private int[] table = new int[16]; // open addressing, holds id + 1 (0 = empty slot)
+    private byte[][] bytes = new byte[8][];
+    private String[] names = new String[8];
+    private int[] hashes = new int[8];
+    private int size;
+
+    /**
+     * Returns the id of {@code buf[start, end)}, adding it when it has not been seen before.
+     */
+    int idOf(byte[] buf, int start, int end) {
+        int hash = hash(buf, start, end);
+        int mask = table.length - 1;
+        int i = hash & mask;
+        int slot;
+        while ((slot = table[i]) != 0) {
+            int id = slot - 1;
+            if (hashes[id] == hash && equals(bytes[id], buf, start, end)) {
+                return id;
+            }
+            i = (i + 1) & mask;
+        }
+        return add(Arrays.copyOfRange(buf, start, end), hash, i);
+    }
+
+    /**
+     * Returns the id of an already decoded value, adding it when it has not been seen before.
+     */
+    int idOf(String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        return idOf(encoded, 0, encoded.length);
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    byte[] bytes(int id) {
+        return bytes[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int add(byte[] key, int hash, int tableIndex) {
+        int id = size++;
+        if (id == bytes.length) {
+            bytes = Arrays.copyOf(bytes, id * 2);
+            names = Arrays.copyOf(names, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        bytes[id] = key;
+        names[id] = new String(key, StandardCharsets.UTF_8);
+        hashes[id] = hash;
+        table[tableIndex] = id + 1;
+        if (size * 2 > table.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = id + 1;
+        }
+    }
+
+    static int hash(byte[] buf, int start, int end) {
+        int h = 1;
+        for (int i = start; i < end; i++) h = 31 * h + buf[i];
+        return h ^ (h >>> 16);
+    }
+
+    static boolean equals(byte[] key, byte[] buf, int start, int end) {
+        if (key.length != end - start) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buf[start + i]) return false;
+        }
+        return true;
+    }
+}
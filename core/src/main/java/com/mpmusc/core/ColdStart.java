@@ -0,0 +1,106 @@
+package com.mpmusc.core;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Workloads for cold start tuning of the function jars.
+ * <pre>
+ *   java -XX:ArchiveClassesAtExit=app-cds.jsa -cp function.jar com.mpmusc.core.ColdStart train [data.csv]
+ *   java -cp function.jar com.mpmusc.core.ColdStart probe [data.csv]
+ * </pre>
+ * {@code train} runs every analysis path the handlers use once, so that a class data sharing archive
+ * dumped at exit holds all classes of a real invocation. {@code probe} runs a single analysis, prints
+ * how long it took and exits; the startup harness in the benchmarks module launches it repeatedly.
+ * Without a CSV argument a small generated dataset is used.
+ */
+public class ColdStart {
+
+    private static final String[] DEPARTMENTS = {"Engineering", "Finance", "HR", "IT", "Legal", "Marketing"};
+    private static final String[] GENDERS = {"Female", "Male", "Non-binary"};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || !("train".equals(args[0]) || "probe".equals(args[0]))) {
+            System.err.println("Usage: ColdStart <train|probe> [data.csv]");
+            System.exit(1);
+        }
+        String path = args.length > 1 ? args[1] : sampleCsv().getAbsolutePath();
+        // request paths must be inside the data directory; this tool reads the CSV it was given
+        System.setProperty(DatasetFiles.DATA_DIR_PROPERTY, new File(path).getAbsoluteFile().getParent());
+        if ("probe".equals(args[0])) {
+            probe(path);
+        } else {
+            train(path);
+        }
+    }
+
+    private static void probe(String path) {
+        long start = System.nanoTime();
+        GenderDistributionRequest request = new GenderDistributionRequest();
+        request.setPath(path);
+        GenderDistributionResult result = AnalysisEngine.analyze(request);
+        String json = new Gson().toJson(result);
+        long firstInvocationNanos = System.nanoTime() - start;
+        if (result.getError() != null) {
+            System.err.println(result.getError());
+            System.exit(2);
+        }
+        System.out.println("firstInvocationNanos=" + firstInvocationNanos + " resultBytes=" + json.length());
+    }
+
+    private static void train(String path) {
+        Gson gson = new Gson();
+        for (String parser : Arrays.asList(GenderDistributionRequest.PARSER_BYTES, GenderDistributionRequest.PARSER_SPLIT)) {
+            JsonObject payload = new JsonObject();
+            payload.addProperty("path", path);
+            payload.addProperty("parser", parser);
+            payload.addProperty("rawCounts", true);
+            GenderDistributionRequest request = gson.fromJson(payload, GenderDistributionRequest.class);
+            gson.toJsonTree(AnalysisEngine.analyze(request));
+            gson.toJsonTree(new GenderDistributionService().analyze(request));
+        }
+
+        GenderDistributionRequest shard = new GenderDistributionRequest();
+        shard.setPath(path);
+        shard.setShardIndex(0);
+        shard.setShardCount(2);
+        GenderDistributionRequest range = new GenderDistributionRequest();
+        range.setPath(path);
+        range.setShardOffset(0L);
+        range.setShardLength(new File(path).length() / 2);
+        GenderDistributionMerger.merge(AnalysisEngine.analyze(shard), AnalysisEngine.analyze(range));
+
+        GenderDistributionRequest queries = new GenderDistributionRequest();
+        queries.setPath(path);
+        queries.setQueries(Collections.singletonList(
+                new AggregationQuery("training", Collections.singletonList("4"), "2")));
+        gson.toJson(AnalysisEngine.analyze(queries));
+        System.out.println("Training run finished");
+    }
+
+    /**
+     * A small deterministic CSV in the temp directory with gender in column 2 and department in column 4.
+     */
+    private static File sampleCsv() throws IOException {
+        File file = File.createTempFile("coldstart", ".csv");
+        file.deleteOnExit();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.write("employee_id,name,gender,age,department\n");
+            for (int i = 0; i < 5000; i++) {
+                out.write(i + ",Employee " + i + "," + GENDERS[(i * 7) % GENDERS.length] + "," + (20 + i % 45)
+                        + "," + DEPARTMENTS[(i * 13) % DEPARTMENTS.length] + "\n");
+            }
+        }
+        return file;
+    }
+}
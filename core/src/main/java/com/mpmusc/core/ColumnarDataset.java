@@ -0,0 +1,256 @@
+package com.mpmusc.core;
+
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Department and gender columns of the employee CSV in a compact, dictionary coded binary form.
+ * <pre>
+ *   magic        4 bytes  "MPCD"
+ *   version      int      2
+ *   sourceLength long     length of the CSV the dataset was encoded from
+ *   sourceCrc    long     CRC32 of that CSV
+ *   rowCount     int
+ *   departments  int count, then per value: unsigned short length + UTF-8 bytes
+ *   genders      int count, then per value: unsigned short length + UTF-8 bytes
+ *   department   rowCount codes, 1 byte each (up to 256 values) or 2 bytes each
+ *   gender       rowCount codes, 1 byte each (up to 256 values) or 2 bytes each
+ * </pre>
+ * All numbers are big-endian. Rows the CSV path would skip (fewer than five fields) are not stored.
+ * Version 1 files have no source fields; they are read, but never taken to match a CSV.
+ */
+public class ColumnarDataset {
+
+    public static final String EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x4D504344; // "MPCD"
+    private static final int VERSION = 2;
+    private static final long UNKNOWN_SOURCE = -1;
+    private static final int MAX_VALUES = 1 << 16;
+
+    private final long sourceLength;
+    private final long sourceCrc;
+    private final String[] departments;
+    private final String[] genders;
+    private final int rowCount;
+    private final byte[] departmentCodes;
+    private final byte[] genderCodes;
+
+    ColumnarDataset(long sourceLength, long sourceCrc, String[] departments, String[] genders, int rowCount,
+                    byte[] departmentCodes, byte[] genderCodes) {
+        this.sourceLength = sourceLength;
+        this.sourceCrc = sourceCrc;
+        this.departments = departments;
+        this.genders = genders;
+        this.rowCount = rowCount;
+        this.departmentCodes = departmentCodes;
+        this.genderCodes = genderCodes;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Whether the dataset was encoded from a CSV with this content, so that it still stands for that CSV.
+     */
+    boolean encodedFrom(DatasetFingerprint csv) {
+        return sourceLength != UNKNOWN_SOURCE && csv.length() == sourceLength && csv.crc() == sourceCrc;
+    }
+
+    /**
+     * Name of the binary file that sits next to a CSV file: {@code data.csv} becomes {@code data.bin}.
+     */
+    public static String siblingName(String csvName) {
+        String base = csvName.endsWith(".csv") ? csvName.substring(0, csvName.length() - 4) : csvName;
+        return base + EXTENSION;
+    }
+
+    /**
+     * Encodes the gender and department columns of a CSV stream (header line included). The stream is read to
+     * its end; its length and CRC32 are recorded as the dataset's source.
+     *
+     * @throws TooManyValuesException when a column has more distinct values than the format can hold
+     */
+    public static ColumnarDataset fromCsv(InputStream csv, int genderColumn, int departmentColumn, int minFields)
+            throws IOException {
+        final ByteDictionary departmentDictionary = new ByteDictionary();
+        final ByteDictionary genderDictionary = new ByteDictionary();
+        final int[][] codes = {new int[1024], new int[1024]};
+        final int[] rows = {0};
+        SourceStream source = new SourceStream(csv);
+        new CsvByteScanner(new int[]{genderColumn, departmentColumn}, minFields, (buf, starts, ends) -> {
+            int row = rows[0]++;
+            if (row == codes[0].length) {
+                codes[0] = Arrays.copyOf(codes[0], row * 2);
+                codes[1] = Arrays.copyOf(codes[1], row * 2);
+            }
+            codes[0][row] = departmentDictionary.idOf(buf, starts[1], ends[1]);
+            codes[1][row] = genderDictionary.idOf(buf, starts[0], ends[0]);
+        }).scan(source, true);
+
+        if (departmentDictionary.size() > MAX_VALUES || genderDictionary.size() > MAX_VALUES) {
+            throw new TooManyValuesException();
+        }
+        return new ColumnarDataset(source.length, source.crc.getValue(),
+                names(departmentDictionary), names(genderDictionary), rows[0],
+                pack(codes[0], rows[0], departmentDictionary.size()),
+                pack(codes[1], rows[0], genderDictionary.size()));
+    }
+
+    /**
+     * Reads a dataset from the buffer's position; the buffer (typically memory mapped) is not modified.
+     */
+    public static ColumnarDataset read(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate();
+        if (in.remaining() < 12 || in.getInt() != MAGIC) {
+            throw new IOException("Not a columnar dataset");
+        }
+        int version = in.getInt();
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported columnar dataset version " + version);
+        }
+        long sourceLength = version == 1 ? UNKNOWN_SOURCE : in.getLong();
+        long sourceCrc = version == 1 ? UNKNOWN_SOURCE : in.getLong();
+        int rowCount = in.getInt();
+        String[] departments = readDictionary(in);
+        String[] genders = readDictionary(in);
+        byte[] departmentCodes = new byte[rowCount * width(departments.length)];
+        byte[] genderCodes = new byte[rowCount * width(genders.length)];
+        in.get(departmentCodes);
+        in.get(genderCodes);
+        return new ColumnarDataset(sourceLength, sourceCrc, departments, genders, rowCount, departmentCodes, genderCodes);
+    }
+
+    public void write(OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(sourceLength);
+        out.writeLong(sourceCrc);
+        out.writeInt(rowCount);
+        writeDictionary(out, departments);
+        writeDictionary(out, genders);
+        out.write(departmentCodes);
+        out.write(genderCodes);
+        out.flush();
+    }
+
+    /**
+     * Counts department x gender over the rows {@code [fromRow, toRow)}. Codes map one to one onto the
+     * dictionary ids of the returned counts.
+     */
+    GenderCounts count(int fromRow, int toRow) {
+        GenderCounts counts = new GenderCounts(departments.length, genders.length);
+        for (String department : departments) counts.departments.idOf(department);
+        for (String gender : genders) counts.genders.idOf(gender);
+
+        CountMatrix matrix = counts.counts;
+        if (width(departments.length) == 1 && width(genders.length) == 1) {
+            for (int i = fromRow; i < toRow; i++) {
+                matrix.increment(departmentCodes[i] & 0xff, genderCodes[i] & 0xff);
+            }
+        } else {
+            for (int i = fromRow; i < toRow; i++) {
+                matrix.increment(code(departmentCodes, departments.length, i), code(genderCodes, genders.length, i));
+            }
+        }
+        return counts;
+    }
+
+    private static int code(byte[] codes, int dictionarySize, int row) {
+        if (width(dictionarySize) == 1) return codes[row] & 0xff;
+        return ((codes[2 * row] & 0xff) << 8) | (codes[2 * row + 1] & 0xff);
+    }
+
+    private static int width(int dictionarySize) {
+        return dictionarySize <= 256 ? 1 : 2;
+    }
+
+    private static byte[] pack(int[] codes, int rows, int dictionarySize) {
+        if (width(dictionarySize) == 1) {
+            byte[] packed = new byte[rows];
+            for (int i = 0; i < rows; i++) packed[i] = (byte) codes[i];
+            return packed;
+        }
+        byte[] packed = new byte[rows * 2];
+        for (int i = 0; i < rows; i++) {
+            packed[2 * i] = (byte) (codes[i] >>> 8);
+            packed[2 * i + 1] = (byte) codes[i];
+        }
+        return packed;
+    }
+
+    private static String[] names(ByteDictionary dictionary) {
+        String[] names = new String[dictionary.size()];
+        for (int i = 0; i < names.length; i++) names[i] = dictionary.name(i);
+        return names;
+    }
+
+    private static void writeDictionary(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer in) {
+        String[] values = new String[in.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[in.getShort() & 0xffff];
+            in.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    /**
+     * Passes a stream through, keeping its length and CRC32 so far.
+     */
+    private static final class SourceStream extends FilterInputStream {
+        final CRC32 crc = new CRC32();
+        long length;
+
+        SourceStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                crc.update(b);
+                length++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                crc.update(b, off, read);
+                length += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * A column has more distinct values than the two byte codes of the binary format can hold.
+     */
+    public static final class TooManyValuesException extends IOException {
+        TooManyValuesException() {
+            super("Too many distinct values for the binary format");
+        }
+    }
+}
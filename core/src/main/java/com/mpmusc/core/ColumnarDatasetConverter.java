@@ -0,0 +1,39 @@
+package com.mpmusc.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Converts an employee CSV into the {@link ColumnarDataset} binary format.
+ * <pre>
+ *   java -cp core.jar com.mpmusc.core.ColumnarDatasetConverter fake_employees_100k.csv [fake_employees_100k.bin]
+ * </pre>
+ * Put the output next to the CSV (same resources folder or directory) and
+ * {@link GenderDistributionService} picks it up instead of parsing the CSV, for as long as the CSV is the one
+ * it was converted from.
+ */
+public class ColumnarDatasetConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ColumnarDatasetConverter <input.csv> [output.bin]");
+            System.exit(1);
+        }
+        String input = args[0];
+        String output = args.length > 1 ? args[1] : ColumnarDataset.siblingName(input);
+
+        ColumnarDataset dataset;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(input))) {
+            dataset = GenderDistributionService.encode(in);
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            dataset.write(out);
+        }
+        System.out.println("Wrote " + dataset.getRowCount() + " rows to " + output);
+    }
+}
@@ -0,0 +1,71 @@
+package com.mpmusc.core;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Identity of the container (JVM) serving the invocations, so that the invoker can tell a cold
+ * invocation from a warm one. The first invocation of a JVM is its cold start.
+ */
+final class ContainerInfo {
+
+    // Random instead of UUID.randomUUID(): SecureRandom seeding would add to the very cold start it reports
+    static final String CONTAINER_ID = Long.toString(System.currentTimeMillis(), 36) + "-"
+            + Long.toHexString(new Random().nextLong());
+
+    private static final AtomicLong INVOCATIONS = new AtomicLong();
+    private static final long PROC_TICK_MILLIS = 10; // /proc reports times in USER_HZ (100 per second)
+
+    private ContainerInfo() {
+    }
+
+    static long nextInvocation() {
+        return INVOCATIONS.incrementAndGet();
+    }
+
+    /**
+     * Milliseconds since the process started, with 10 ms resolution, or null where /proc is not available.
+     * Read from /proc instead of the RuntimeMXBean, whose class loading alone costs tens of milliseconds.
+     */
+    static Long millisSinceProcessStart() {
+        try {
+            String stat = read("/proc/self/stat");
+            // the command name may contain spaces, so count fields from its closing parenthesis
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long startTicks = Long.parseLong(fields[19]);
+            String uptime = read("/proc/uptime");
+            String seconds = uptime.substring(0, uptime.indexOf(' '));
+            int dot = seconds.indexOf('.');
+            long uptimeMillis = Long.parseLong(seconds.substring(0, dot)) * 1000
+                    + Long.parseLong(seconds.substring(dot + 1)) * PROC_TICK_MILLIS;
+            return Math.max(0, uptimeMillis - startTicks * PROC_TICK_MILLIS);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Marks {@code result} as the {@code sequence}-th invocation of this container.
+     */
+    static void stamp(GenderDistributionResult result, long sequence, Long jvmInitMillis) {
+        result.setContainerId(CONTAINER_ID);
+        result.setInvocationSequence(sequence);
+        result.setColdStart(sequence == 1);
+        result.setJvmInitMillis(jvmInitMillis);
+    }
+
+    private static String read(String path) throws IOException {
+        try (FileInputStream in = new FileInputStream(path)) {
+            byte[] buffer = new byte[1024];
+            int length = 0;
+            int read;
+            while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+            }
+            return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+        }
+    }
+}
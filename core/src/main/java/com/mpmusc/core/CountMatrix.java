@@ -0,0 +1,75 @@
+package com.mpmusc.core;
+
+import java.util.Arrays;
+
+/**
+ * Growable row-major matrix of {@code long} counters indexed by dense dictionary ids.
+ */
+class CountMatrix {
+
+    private long[] cells;
+    private int rowCapacity;
+    private int columnCapacity;
+    private int rows;
+    private int columns;
+
+    CountMatrix() {
+        this(16, 4);
+    }
+
+    CountMatrix(int rowCapacity, int columnCapacity) {
+        this.rowCapacity = rowCapacity;
+        this.columnCapacity = columnCapacity;
+        this.cells = new long[rowCapacity * columnCapacity];
+    }
+
+    void increment(int row, int column) {
+        add(row, column, 1);
+    }
+
+    void add(int row, int column, long delta) {
+        if (row >= rowCapacity || column >= columnCapacity) grow(row, column);
+        if (row >= rows) rows = row + 1;
+        if (column >= columns) columns = column + 1;
+        cells[row * columnCapacity + column] += delta;
+    }
+
+    long get(int row, int column) {
+        if (row >= rows || column >= columns) return 0;
+        return cells[row * columnCapacity + column];
+    }
+
+    long rowTotal(int row) {
+        long total = 0;
+        int base = row * columnCapacity;
+        for (int c = 0; c < columns; c++) total += cells[base + c];
+        return total;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    private void grow(int row, int column) {
+        int newRowCapacity = rowCapacity;
+        while (row >= newRowCapacity) newRowCapacity *= 2;
+        int newColumnCapacity = columnCapacity;
+        while (column >= newColumnCapacity) newColumnCapacity *= 2;
+
+        if (newColumnCapacity == columnCapacity) {
+            cells = Arrays.copyOf(cells, newRowCapacity * columnCapacity);
+        } else {
+            long[] grown = new long[newRowCapacity * newColumnCapacity];
+            for (int r = 0; r < rows; r++) {
+                System.arraycopy(cells, r * columnCapacity, grown, r * newColumnCapacity, columns);
+            }
+            cells = grown;
+        }
+        rowCapacity = newRowCapacity;
+        columnCapacity = newColumnCapacity;
+    }
+}
@@ -0,0 +1,197 @@
+package com.mpmusc.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Scans comma separated rows straight from raw bytes. Only the requested columns are located;
+ * their trimmed byte ranges are handed to a {@link RowHandler} without decoding anything,
+ * so no objects are created per row.
+ * <p>
+ * Lines end with '\n'; a trailing '\r' is removed together with the rest of the whitespace,
+ * the same way {@link String#trim()} treated it on the old line-by-line path.
+ */
+public class CsvByteScanner {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Receives the located columns of every row that has at least {@code minFields} fields.
+     * {@code starts[k]}/{@code ends[k]} delimit the value of the k-th requested column in {@code buf};
+     * both are -1 when the row ends before that column. The arrays are reused for the next row.
+     */
+    public interface RowHandler {
+        void onRow(byte[] buf, int[] starts, int[] ends);
+    }
+
+    private final int[] slotOfColumn; // column index -> position in starts/ends, -1 if not requested
+    private final int minFields;
+    private final int fieldsNeeded; // fields to look at before the rest of a line can be skipped
+    private final int[] starts;
+    private final int[] ends;
+    private final RowHandler handler;
+    private byte[] buffer;
+
+    /**
+     * @param columns   zero based column indexes to extract, in the order the handler expects them
+     * @param minFields rows with fewer fields are skipped
+     * @param handler   callback invoked for every accepted row
+     */
+    public CsvByteScanner(int[] columns, int minFields, RowHandler handler) {
+        int maxColumn = 0;
+        for (int c : columns) maxColumn = Math.max(maxColumn, c);
+        this.slotOfColumn = new int[maxColumn + 1];
+        Arrays.fill(slotOfColumn, -1);
+        for (int k = 0; k < columns.length; k++) slotOfColumn[columns[k]] = k;
+        this.minFields = minFields;
+        this.fieldsNeeded = Math.max(minFields, maxColumn + 1);
+        this.starts = new int[columns.length];
+        this.ends = new int[columns.length];
+        this.handler = handler;
+    }
+
+    /**
+     * Reads the whole stream, optionally skipping the first (header) line.
+     */
+    public void scan(InputStream in, boolean skipHeader) throws IOException {
+        if (buffer == null) buffer = new byte[DEFAULT_BUFFER_SIZE];
+        boolean skipping = skipHeader;
+        int filled = 0;
+        int read;
+        while ((read = in.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += read;
+            if (skipping) {
+                int nl = indexOf(buffer, (byte) '\n', 0, filled);
+                if (nl < 0) {
+                    filled = 0; // still inside the header
+                    continue;
+                }
+                filled -= nl + 1;
+                System.arraycopy(buffer, nl + 1, buffer, 0, filled);
+                skipping = false;
+            }
+            filled = scanCompleteLines(filled);
+        }
+        if (filled > 0 && !skipping) {
+            scanLine(buffer, 0, filled);
+        }
+    }
+
+    /**
+     * Scans the lines between the position and the limit of {@code data}, without moving its position.
+     * Heap buffers are scanned in place; direct or mapped buffers are copied through the scanner's
+     * own buffer in large blocks.
+     */
+    public void scan(ByteBuffer data) {
+        if (data.hasArray()) {
+            int offset = data.arrayOffset();
+            scanLines(data.array(), offset + data.position(), offset + data.limit());
+            return;
+        }
+        if (buffer == null) buffer = new byte[DEFAULT_BUFFER_SIZE];
+        ByteBuffer source = data.duplicate();
+        int filled = 0;
+        while (source.hasRemaining()) {
+            int n = Math.min(buffer.length - filled, source.remaining());
+            source.get(buffer, filled, n);
+            filled = scanCompleteLines(filled + n);
+        }
+        if (filled > 0) {
+            scanLine(buffer, 0, filled);
+        }
+    }
+
+    /**
+     * Scans every complete line in {@code buffer[0, filled)} and moves the unfinished tail to the front.
+     * Returns the length of that tail.
+     */
+    private int scanCompleteLines(int filled) {
+        int lastNl = lastIndexOf(buffer, (byte) '\n', 0, filled);
+        if (lastNl < 0) {
+            if (filled == buffer.length) {
+                // a single line larger than the buffer: grow and keep reading
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            return filled;
+        }
+        scanLines(buffer, 0, lastNl + 1);
+        int remaining = filled - lastNl - 1;
+        System.arraycopy(buffer, lastNl + 1, buffer, 0, remaining);
+        return remaining;
+    }
+
+    /**
+     * Scans the complete lines held in {@code buf[from, to)}. The last line does not need a newline.
+     */
+    public void scanLines(byte[] buf, int from, int to) {
+        int lineStart = from;
+        while (lineStart < to) {
+            int nl = indexOf(buf, (byte) '\n', lineStart, to);
+            int lineEnd = nl < 0 ? to : nl;
+            scanLine(buf, lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private void scanLine(byte[] buf, int from, int to) {
+        if (minFields < fieldsNeeded) {
+            // short rows are accepted, so columns they do not reach must not keep the previous row's offsets
+            Arrays.fill(starts, -1);
+            Arrays.fill(ends, -1);
+        }
+        int field = 0;
+        int fieldStart = from;
+        for (int i = from; ; i++) {
+            if (i == to || buf[i] == ',') {
+                if (field < slotOfColumn.length) {
+                    int slot = slotOfColumn[field];
+                    if (slot >= 0) {
+                        int s = fieldStart;
+                        int e = i;
+                        while (s < e && (buf[s] & 0xff) <= ' ') s++;
+                        while (e > s && (buf[e - 1] & 0xff) <= ' ') e--;
+                        starts[slot] = s;
+                        ends[slot] = e;
+                    }
+                }
+                field++;
+                // every requested column is captured and the row is long enough: skip the rest
+                if (i == to || field >= fieldsNeeded) break;
+                fieldStart = i + 1;
+            }
+        }
+        if (field >= minFields) {
+            handler.onRow(buf, starts, ends);
+        }
+    }
+
+    /**
+     * Returns the start of the first line that begins at or after the absolute index {@code pos}:
+     * {@code pos} itself when it directly follows a newline, otherwise the byte after the next newline
+     * (or the limit). Splitting a buffer at such offsets gives ranges holding only whole lines.
+     */
+    static int lineStartAtOrAfter(ByteBuffer data, int pos) {
+        if (pos <= data.position()) return data.position();
+        int limit = data.limit();
+        for (int i = pos - 1; i < limit; i++) {
+            if (data.get(i) == '\n') return i + 1;
+        }
+        return limit;
+    }
+
+    static int indexOf(byte[] buf, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == b) return i;
+        }
+        return -1;
+    }
+
+    static int lastIndexOf(byte[] buf, byte b, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buf[i] == b) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,144 @@
+package com.mpmusc.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Decoded {@link ColumnarDataset}s kept in memory while the container lives. A dataset comes from its binary
+ * file, or is encoded from the CSV in the background after the first time that CSV is analyzed, so the request
+ * that finds it missing scans the CSV as usual and does not wait for the encoding. Later invocations count
+ * straight from memory as long as the file's {@link DatasetFingerprint} still holds.
+ * The fingerprints themselves are kept per file too, so a known file is only hashed again after it changed.
+ * A CSV with too many distinct values for the columnar form is remembered as such (until it changes), and the
+ * caller scans the CSV instead. Both maps are bounded and drop their least recently used files.
+ */
+final class DatasetCache {
+
+    static final int MAX_DATASETS = 8;
+    private static final int MAX_FINGERPRINTS = 256;
+
+    private final Map<String, DatasetFingerprint> fingerprints = lru(MAX_FINGERPRINTS);
+    private final Map<String, Entry> entries = lru(MAX_DATASETS);
+    private final Set<String> encoding = ConcurrentHashMap.newKeySet(); // CSVs queued for or being encoded
+    private final Executor encoder;
+
+    DatasetCache() {
+        this(Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "dataset-encoder");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @param encoder runs the background encoding of CSVs
+     */
+    DatasetCache(Executor encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * Current fingerprint of {@code file}; only stats the file when it is already known and unchanged.
+     */
+    DatasetFingerprint fingerprint(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        DatasetFingerprint known = fingerprints.get(key);
+        DatasetFingerprint current = known != null ? known.verify(file) : null;
+        if (current == null) current = DatasetFingerprint.of(file);
+        if (current != known) fingerprints.put(key, current);
+        return current;
+    }
+
+    /**
+     * @param source CSV or columnar binary file
+     * @param binary whether {@code source} is in the binary format
+     * @return the dataset, or null when a CSV is not encoded yet (its encoding is then started) or cannot be
+     *         encoded in columnar form
+     */
+    ColumnarDataset get(File source, boolean binary) throws IOException {
+        String key = source.getAbsolutePath();
+        DatasetFingerprint fingerprint = fingerprint(source);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.fingerprint.sameContent(fingerprint)) return entry.dataset;
+        if (!binary) {
+            encodeLater(key, source, fingerprint);
+            return null;
+        }
+        ColumnarDataset dataset = readBinary(source);
+        entries.put(key, new Entry(fingerprint, dataset));
+        return dataset;
+    }
+
+    void clear() {
+        entries.clear();
+        fingerprints.clear();
+    }
+
+    private void encodeLater(String key, File csv, DatasetFingerprint fingerprint) {
+        if (!encoding.add(key)) return;
+        try {
+            encoder.execute(() -> {
+                try {
+                    ColumnarDataset dataset;
+                    try {
+                        dataset = encodeCsv(csv);
+                    } catch (ColumnarDataset.TooManyValuesException e) {
+                        dataset = null;
+                    }
+                    // a CSV that changed while it was read is encoded again when it is next requested
+                    if (fingerprint.sameContent(fingerprint(csv))) entries.put(key, new Entry(fingerprint, dataset));
+                } catch (IOException | RuntimeException e) {
+                    // left out of the cache: requests keep scanning the CSV
+                } finally {
+                    encoding.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            encoding.remove(key);
+        }
+    }
+
+    private static <V> Map<String, V> lru(int capacity) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    private static ColumnarDataset readBinary(File file) throws IOException {
+        ByteBuffer data = DatasetFiles.map(file);
+        if (data == null) {
+            throw new IOException("Columnar dataset too large: " + file);
+        }
+        return ColumnarDataset.read(data);
+    }
+
+    private static ColumnarDataset encodeCsv(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return GenderDistributionService.encode(in);
+        }
+    }
+
+    private static final class Entry {
+        final DatasetFingerprint fingerprint;
+        final ColumnarDataset dataset; // null: the CSV has no columnar form
+
+        Entry(DatasetFingerprint fingerprint, ColumnarDataset dataset) {
+            this.fingerprint = fingerprint;
+            this.dataset = dataset;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.mpmusc.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Locates dataset files on the filesystem and memory maps them.
+ * <p>
+ * Request paths are confined to the data directory: the {@value #DATA_DIR_PROPERTY} system property, else the
+ * {@value #DATA_DIR_ENV} environment variable (an app setting of the function), else the temp directory.
+ * Relative paths are resolved against it, and a path that leaves it (through "..", or a symbolic link) is
+ * rejected.
+ * <p>
+ * Resources packed inside the function jar cannot be mapped, so they are copied to the temp
+ * directory the first time they are needed; the copy is remembered for the lifetime of the
+ * container and every later (warm) invocation maps it directly.
+ */
+final class DatasetFiles {
+
+    static final String DATA_DIR_PROPERTY = "mpmusc.dataDir";
+    static final String DATA_DIR_ENV = "MPMUSC_DATA_DIR";
+
+    private static final Map<String, File> RESOURCE_FILES = new ConcurrentHashMap<>();
+
+    private DatasetFiles() {
+    }
+
+    /**
+     * Returns a file holding the classpath resource {@code name}, or null when there is no such resource.
+     */
+    static File resourceFile(ClassLoader loader, String name) throws IOException {
+        if (name.startsWith("/") || name.startsWith("\\") || Arrays.asList(name.split("[/\\\\]")).contains("..")) {
+            throw new IllegalArgumentException("Invalid resource name: " + name);
+        }
+        File file = RESOURCE_FILES.get(name);
+        if (file != null && file.isFile()) return file;
+
+        URL url = loader.getResource(name);
+        if (url == null) return null;
+        if ("file".equals(url.getProtocol())) {
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid resource location: " + url, e);
+            }
+        } else {
+            file = extract(url, name);
+        }
+        RESOURCE_FILES.put(name, file);
+        return file;
+    }
+
+    /**
+     * The file at {@code path} (absolute, or relative to the data directory), or null when there is no such
+     * file. Throws IllegalArgumentException when the path resolves to somewhere outside the data directory.
+     */
+    static File dataFile(String path) throws IOException {
+        File root = dataDir().getCanonicalFile();
+        File file = new File(path);
+        if (!file.isAbsolute()) file = new File(root, path);
+        File canonical = file.getCanonicalFile();
+        if (!canonical.toPath().startsWith(root.toPath())) {
+            throw new IllegalArgumentException("Path is outside the data directory: " + path);
+        }
+        return canonical.isFile() ? canonical : null;
+    }
+
+    static File dataDir() {
+        String dir = System.getProperty(DATA_DIR_PROPERTY);
+        if (dir == null || dir.isEmpty()) dir = System.getenv(DATA_DIR_ENV);
+        if (dir == null || dir.isEmpty()) dir = System.getProperty("java.io.tmpdir");
+        return new File(dir);
+    }
+
+    /**
+     * Maps {@code file} read-only. Returns null when it is larger than a single mapping can hold.
+     */
+    static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return null;
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private static synchronized File extract(URL url, String name) throws IOException {
+        File done = RESOURCE_FILES.get(name);
+        if (done != null && done.isFile()) return done; // extracted by a concurrent invocation
+
+        File dir = new File(System.getProperty("java.io.tmpdir"), "mpmusc");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File target = new File(dir, name.replace('/', '_'));
+        File partial = File.createTempFile("extract", ".part", dir);
+        try (InputStream in = url.openStream()) {
+            Files.copy(in, partial.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(partial.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partial.toPath());
+        }
+        return target;
+    }
+}
@@ -0,0 +1,70 @@
+package com.mpmusc.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Identity of a dataset file's content: size, modification time and a CRC32 of the bytes.
+ * Checking a fingerprint only stats the file; the content is hashed again only when size or
+ * modification time changed, so a file that was merely touched or copied keeps its cached data.
+ */
+final class DatasetFingerprint {
+
+    private final long length;
+    private final long lastModified;
+    private final long crc;
+
+    private DatasetFingerprint(long length, long lastModified, long crc) {
+        this.length = length;
+        this.lastModified = lastModified;
+        this.crc = crc;
+    }
+
+    static DatasetFingerprint of(File file) throws IOException {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        return new DatasetFingerprint(length, lastModified, crc(file));
+    }
+
+    /**
+     * Returns this fingerprint when {@code file} still has the same content (a fresh one when only its
+     * size or modification time stamp moved), or null when the content changed or the file is gone.
+     */
+    DatasetFingerprint verify(File file) throws IOException {
+        if (!file.isFile()) return null;
+        if (file.length() == length && file.lastModified() == lastModified) return this;
+        DatasetFingerprint current = of(file);
+        return sameContent(current) ? current : null;
+    }
+
+    boolean sameContent(DatasetFingerprint other) {
+        return other != null && other.crc == crc && other.length == length;
+    }
+
+    long length() {
+        return length;
+    }
+
+    long crc() {
+        return crc;
+    }
+
+    private static long crc(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer data = DatasetFiles.map(file);
+        if (data != null) {
+            crc.update(data);
+            return crc.getValue();
+        }
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) crc.update(buffer, 0, read);
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,140 @@
+package com.mpmusc.core;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Department x gender row counts. Department and gender values are dictionary encoded to dense ids
+ * and counted in a primitive matrix; the nested maps of the result are only built at the very end.
+ */
+class GenderCounts implements CsvByteScanner.RowHandler {
+
+    final ByteDictionary departments = new ByteDictionary();
+    final ByteDictionary genders = new ByteDictionary();
+    final CountMatrix counts;
+
+    GenderCounts() {
+        this.counts = new CountMatrix();
+    }
+
+    GenderCounts(int departmentCapacity, int genderCapacity) {
+        this.counts = new CountMatrix(Math.max(1, departmentCapacity), Math.max(1, genderCapacity));
+    }
+
+    @Override
+    public void onRow(byte[] buf, int[] starts, int[] ends) {
+        int gender = genders.idOf(buf, starts[0], ends[0]);
+        int department = departments.idOf(buf, starts[1], ends[1]);
+        counts.increment(department, gender);
+    }
+
+    void add(String department, String gender, long count) {
+        counts.add(departments.idOf(department), genders.idOf(gender), count);
+    }
+
+    long rowCount() {
+        long rows = 0;
+        for (int d = 0; d < departments.size(); d++) rows += counts.rowTotal(d);
+        return rows;
+    }
+
+    /**
+     * Raw counts per department and gender, as carried by mergeable partial results.
+     */
+    Map<String, Map<String, Long>> toCountMap() {
+        Map<String, Map<String, Long>> countMap = new HashMap<>();
+        for (int d = 0; d < departments.size(); d++) {
+            Map<String, Long> genderCounts = new HashMap<>();
+            for (int g = 0; g < genders.size(); g++) {
+                long count = counts.get(d, g);
+                if (count > 0) genderCounts.put(genders.name(g), count);
+            }
+            if (!genderCounts.isEmpty()) countMap.put(departments.name(d), genderCounts);
+        }
+        return countMap;
+    }
+
+    /**
+     * Adds the counts of {@code other}, translating its dictionary ids into this instance's ids.
+     */
+    void mergeFrom(GenderCounts other) {
+        int[] genderIds = new int[other.genders.size()];
+        for (int g = 0; g < genderIds.length; g++) {
+            byte[] name = other.genders.bytes(g);
+            genderIds[g] = genders.idOf(name, 0, name.length);
+        }
+        for (int d = 0; d < other.departments.size(); d++) {
+            byte[] name = other.departments.bytes(d);
+            int department = departments.idOf(name, 0, name.length);
+            for (int g = 0; g < genderIds.length; g++) {
+                long count = other.counts.get(d, g);
+                if (count > 0) counts.add(department, genderIds[g], count);
+            }
+        }
+    }
+
+    /**
+     * Percentage of each gender within its department, rounded to two decimals.
+     */
+    Map<String, Map<String, Double>> toDistribution() {
+        Map<String, Map<String, Double>> distribution = new HashMap<>();
+        for (int d = 0; d < departments.size(); d++) {
+            long total = counts.rowTotal(d);
+            if (total == 0) continue;
+            Map<String, Double> genderPercentages = new HashMap<>();
+            for (int g = 0; g < genders.size(); g++) {
+                long count = counts.get(d, g);
+                if (count > 0) {
+                    genderPercentages.put(genders.name(g), percentage(count, total));
+                }
+            }
+            distribution.put(departments.name(d), genderPercentages);
+        }
+        return distribution;
+    }
+
+    /**
+     * Writes what {@link #toDistribution()} returns as a JSON object, without building the maps.
+     */
+    void writeDistribution(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        for (int d = 0; d < departments.size(); d++) {
+            long total = counts.rowTotal(d);
+            if (total == 0) continue;
+            writer.name(departments.name(d)).beginObject();
+            for (int g = 0; g < genders.size(); g++) {
+                long count = counts.get(d, g);
+                if (count > 0) writer.name(genders.name(g)).value(percentage(count, total));
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Writes what {@link #toCountMap()} returns as a JSON object, without building the maps.
+     */
+    void writeCounts(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        for (int d = 0; d < departments.size(); d++) {
+            if (counts.rowTotal(d) == 0) continue;
+            writer.name(departments.name(d)).beginObject();
+            for (int g = 0; g < genders.size(); g++) {
+                long count = counts.get(d, g);
+                if (count > 0) writer.name(genders.name(g)).value(count);
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    static double percentage(double count, long total) {
+        double percentage = (count / total) * 100;
+        return BigDecimal.valueOf(percentage).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -0,0 +1,49 @@
+package com.mpmusc.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Combines partial results that carry raw counts (requested with {@code rawCounts}) into one result.
+ * Counts are added exactly and the percentages are computed once, from the combined counts, so the
+ * outcome does not depend on how the input was split. The merged result carries the combined counts
+ * again, which makes the merge associative: partials of partials can be merged in any grouping.
+ */
+public final class GenderDistributionMerger {
+
+    private GenderDistributionMerger() {
+    }
+
+    public static GenderDistributionResult merge(GenderDistributionResult... partials) {
+        return merge(Arrays.asList(partials));
+    }
+
+    /**
+     * @throws IllegalArgumentException when a partial has an error or carries no raw counts
+     */
+    public static GenderDistributionResult merge(Collection<GenderDistributionResult> partials) {
+        GenderCounts total = new GenderCounts();
+        long executionTimeMillis = 0;
+        for (GenderDistributionResult partial : partials) {
+            if (partial.getError() != null) {
+                throw new IllegalArgumentException("Cannot merge a failed partial: " + partial.getError());
+            }
+            if (partial.getCounts() == null) {
+                throw new IllegalArgumentException("Partial result carries no raw counts");
+            }
+            for (Map.Entry<String, Map<String, Long>> department : partial.getCounts().entrySet()) {
+                for (Map.Entry<String, Long> gender : department.getValue().entrySet()) {
+                    total.add(department.getKey(), gender.getKey(), gender.getValue());
+                }
+            }
+            // partials run side by side, so the slowest one bounds the combined execution time
+            executionTimeMillis = Math.max(executionTimeMillis, partial.getExecutionTimeMillis());
+        }
+
+        GenderDistributionResult merged = new GenderDistributionResult(total.toDistribution(), executionTimeMillis);
+        merged.setCounts(total.toCountMap());
+        merged.setRowCount(total.rowCount());
+        return merged;
+    }
+}
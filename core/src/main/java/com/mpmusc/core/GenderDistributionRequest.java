@@ -1,11 +1,33 @@
 package com.mpmusc.core;
 
+import java.util.List;
+
 /**
  * Request object for gender distribution analysis.
- * Assumes the file is always located in the resources directory.
+ * The file is looked up in the resources directory unless a filesystem path is given.
  */
 public class GenderDistributionRequest {
+    /** Decode lines and split them into strings (original implementation). */
+    public static final String PARSER_SPLIT = "split";
+    /** Scan raw bytes, only looking at the needed columns (default when there is no columnar form). */
+    public static final String PARSER_BYTES = "bytes";
+
     private String filename; // Must refer to a file in resources/
+    private String path;     // Optional filesystem path inside the data directory (e.g. a /tmp copy or a mounted
+                             // volume, see DatasetFiles), wins over filename
+    private String parser;   // not set: the columnar form when there is one, otherwise PARSER_BYTES
+    private Integer threads; // worker threads for the byte scanner; 1 when not set, 0 = all processors.
+                             // Setting parser or threads always scans the CSV.
+    private List<AggregationQuery> queries; // optional group-by breakdowns, evaluated together in one pass
+    private Boolean rawCounts; // also return raw department x gender counts so partial results can be merged
+    private Boolean simulateProcessingDelay; // add a fixed amount of CPU work per row, for load experiments
+
+    // Optional shard: analyze only part of the file, either a byte range or shard index out of shard count.
+    // Rows belong to the shard their line starts in; sharded results always carry raw counts.
+    private Long shardOffset;
+    private Long shardLength;
+    private Integer shardIndex;
+    private Integer shardCount;
 
     public GenderDistributionRequest() {
     }
@@ -21,4 +43,84 @@ public class GenderDistributionRequest {
     public void setFilename(String filename) {
         this.filename = filename;
     }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getParser() {
+        return parser;
+    }
+
+    public void setParser(String parser) {
+        this.parser = parser;
+    }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public List<AggregationQuery> getQueries() {
+        return queries;
+    }
+
+    public void setQueries(List<AggregationQuery> queries) {
+        this.queries = queries;
+    }
+
+    public Boolean getRawCounts() {
+        return rawCounts;
+    }
+
+    public void setRawCounts(Boolean rawCounts) {
+        this.rawCounts = rawCounts;
+    }
+
+    public Boolean getSimulateProcessingDelay() {
+        return simulateProcessingDelay;
+    }
+
+    public void setSimulateProcessingDelay(Boolean simulateProcessingDelay) {
+        this.simulateProcessingDelay = simulateProcessingDelay;
+    }
+
+    public Long getShardOffset() {
+        return shardOffset;
+    }
+
+    public void setShardOffset(Long shardOffset) {
+        this.shardOffset = shardOffset;
+    }
+
+    public Long getShardLength() {
+        return shardLength;
+    }
+
+    public void setShardLength(Long shardLength) {
+        this.shardLength = shardLength;
+    }
+
+    public Integer getShardIndex() {
+        return shardIndex;
+    }
+
+    public void setShardIndex(Integer shardIndex) {
+        this.shardIndex = shardIndex;
+    }
+
+    public Integer getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(Integer shardCount) {
+        this.shardCount = shardCount;
+    }
 }
@@ -1,14 +1,40 @@
 package com.mpmusc.core;
 
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Map;
 
 /**
  * Encapsulates the result of gender distribution analysis.
  */
 public class GenderDistributionResult {
+    /** Locating the dataset and opening or mapping it. */
+    public static final String PHASE_OPEN = "open";
+    /** Reading the rows: decoding, field splitting and counting, done together in one pass. */
+    public static final String PHASE_SCAN = "scan";
+    /** Turning the counts into rounded percentages and result maps. */
+    public static final String PHASE_FINALIZE = "finalize";
+
     private Map<String, Map<String, Double>> distribution;
+    // query name -> group -> pivot value -> count or percentage (only when the request carries queries)
+    private Map<String, Map<String, Map<String, Double>>> aggregations;
+    // raw counts per department and gender, only when requested; see GenderDistributionMerger
+    private Map<String, Map<String, Long>> counts;
+    private Long rowCount; // rows counted; always set for distribution results
     private long executionTimeMillis;
+    private Map<String, Long> phaseNanos; // PHASE_* -> System.nanoTime() duration
+    private Boolean cacheHit; // true when AnalysisEngine answered from a warm container's cache
+    // set by AnalysisEngine: the serving JVM, its 1-based invocation count and whether this is its first one
+    private String containerId;
+    private Long invocationSequence;
+    private Boolean coldStart;
+    private Long jvmInitMillis; // process start until the first invocation arrived; cold starts only
     private String error;
+    // counts the distribution (and the raw counts when requested) are still to be computed from; see
+    // AnalysisEngine#analyze(GenderDistributionRequest, boolean). Not serialized.
+    private transient GenderCounts deferred;
+    private transient boolean deferredRawCounts;
 
     public GenderDistributionResult() {
     }
@@ -30,6 +56,30 @@ public class GenderDistributionResult {
         this.distribution = distribution;
     }
 
+    public Map<String, Map<String, Map<String, Double>>> getAggregations() {
+        return aggregations;
+    }
+
+    public void setAggregations(Map<String, Map<String, Map<String, Double>>> aggregations) {
+        this.aggregations = aggregations;
+    }
+
+    public Map<String, Map<String, Long>> getCounts() {
+        return counts;
+    }
+
+    public void setCounts(Map<String, Map<String, Long>> counts) {
+        this.counts = counts;
+    }
+
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
     public long getExecutionTimeMillis() {
         return executionTimeMillis;
     }
@@ -38,6 +88,54 @@ public class GenderDistributionResult {
         this.executionTimeMillis = executionTimeMillis;
     }
 
+    public Map<String, Long> getPhaseNanos() {
+        return phaseNanos;
+    }
+
+    public void setPhaseNanos(Map<String, Long> phaseNanos) {
+        this.phaseNanos = phaseNanos;
+    }
+
+    public Boolean getCacheHit() {
+        return cacheHit;
+    }
+
+    public void setCacheHit(Boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    public String getContainerId() {
+        return containerId;
+    }
+
+    public void setContainerId(String containerId) {
+        this.containerId = containerId;
+    }
+
+    public Long getInvocationSequence() {
+        return invocationSequence;
+    }
+
+    public void setInvocationSequence(Long invocationSequence) {
+        this.invocationSequence = invocationSequence;
+    }
+
+    public Boolean getColdStart() {
+        return coldStart;
+    }
+
+    public void setColdStart(Boolean coldStart) {
+        this.coldStart = coldStart;
+    }
+
+    public Long getJvmInitMillis() {
+        return jvmInitMillis;
+    }
+
+    public void setJvmInitMillis(Long jvmInitMillis) {
+        this.jvmInitMillis = jvmInitMillis;
+    }
+
     public String getError() {
         return error;
     }
@@ -45,4 +143,72 @@ public class GenderDistributionResult {
     public void setError(String error) {
         this.error = error;
     }
+
+    /**
+     * Writes the {@code "distribution"} member, straight from the counts when the maps were not built.
+     * Writes nothing when there is no distribution.
+     */
+    public void writeDistribution(JsonWriter writer) throws IOException {
+        if (distribution != null) {
+            writer.name("distribution").beginObject();
+            for (Map.Entry<String, Map<String, Double>> department : distribution.entrySet()) {
+                writer.name(department.getKey()).beginObject();
+                for (Map.Entry<String, Double> gender : department.getValue().entrySet()) {
+                    writer.name(gender.getKey()).value(gender.getValue());
+                }
+                writer.endObject();
+            }
+            writer.endObject();
+        } else if (deferred != null) {
+            writer.name("distribution");
+            deferred.writeDistribution(writer);
+        }
+    }
+
+    /**
+     * Writes the {@code "counts"} member, straight from the counts when the map was not built. Writes
+     * nothing when there are no raw counts.
+     */
+    public void writeCounts(JsonWriter writer) throws IOException {
+        if (counts != null) {
+            writer.name("counts").beginObject();
+            for (Map.Entry<String, Map<String, Long>> department : counts.entrySet()) {
+                writer.name(department.getKey()).beginObject();
+                for (Map.Entry<String, Long> gender : department.getValue().entrySet()) {
+                    writer.name(gender.getKey()).value(gender.getValue());
+                }
+                writer.endObject();
+            }
+            writer.endObject();
+        } else if (deferred != null && deferredRawCounts) {
+            writer.name("counts");
+            deferred.writeCounts(writer);
+        }
+    }
+
+    /**
+     * Leaves the distribution (and the raw counts when {@code rawCounts}) unbuilt; they are written from
+     * {@code counts}, which must not change any more.
+     */
+    void defer(GenderCounts counts, boolean rawCounts) {
+        this.deferred = counts;
+        this.deferredRawCounts = rawCounts;
+    }
+
+    /**
+     * Shares the deferred counts of {@code other}, which carries the same distribution.
+     */
+    void deferLike(GenderDistributionResult other) {
+        defer(other.deferred, other.deferredRawCounts);
+    }
+
+    /**
+     * Builds the maps that were deferred, so that getters and reflective serializers see them.
+     */
+    void buildDeferred() {
+        if (deferred == null) return;
+        if (distribution == null) distribution = deferred.toDistribution();
+        if (deferredRawCounts && counts == null) counts = deferred.toCountMap();
+        deferred = null;
+    }
 }
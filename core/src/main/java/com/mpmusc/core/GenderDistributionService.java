@@ -1,78 +1,455 @@
 package com.mpmusc.core;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Core service to compute gender distribution from a CSV file present in resources.
+ * Core service to compute gender distribution from a CSV file present in resources
+ * (or at a filesystem path given in the request).
  */
 public class GenderDistributionService {
 
+    private static final int GENDER_COLUMN = 2;
+    private static final int DEPARTMENT_COLUMN = 4;
+    private static final int MIN_FIELDS = 5;
+
+    private final DatasetCache datasets; // null: read the dataset again on every call
+    private volatile double delaySink; // keeps the simulated work observable so the JIT cannot drop it
+
+    public GenderDistributionService() {
+        this(null);
+    }
+
+    /**
+     * @param datasets keeps columnar datasets in memory between calls, see {@link AnalysisEngine}
+     */
+    GenderDistributionService(DatasetCache datasets) {
+        this.datasets = datasets;
+    }
+
     public GenderDistributionResult analyze(GenderDistributionRequest request) {
+        return analyze(request, true);
+    }
+
+    /**
+     * @param resultMaps false to leave the distribution and raw counts of byte scanner and columnar results
+     *                   unbuilt, for callers that write them with {@link GenderDistributionResult#writeDistribution}
+     *                   and {@link GenderDistributionResult#writeCounts}
+     */
+    GenderDistributionResult analyze(GenderDistributionRequest request, boolean resultMaps) {
         long startTime = System.currentTimeMillis();
+        PhaseTimer timer = new PhaseTimer();
 
         try {
-            String filename = (request.getFilename() != null && !request.getFilename().isEmpty())
-                    ? request.getFilename()
-                    : "fake_employees_100k.csv"; // default file assumed in resources
+            String filename = filename(request);
 
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream(filename);
-            if (inputStream == null) {
-                return new GenderDistributionResult("File not found in resources: " + filename);
+            if (request.getQueries() != null && !request.getQueries().isEmpty()) {
+                return analyzeQueries(request, filename, startTime, timer);
             }
 
-            Map<String, Map<String, Double>> distribution = new HashMap<>();
-            Map<String, Long> departmentTotals = new HashMap<>();
-
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-                reader.readLine(); // Skip header
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] tokens = line.split(",", -1);
-                    if (tokens.length < 5) continue;
-
-                    String gender = tokens[2].trim();
-                    String department = tokens[4].trim();
-
-//                    simulateProcessingDelay(); // optional
+            if (isSharded(request)) {
+                return analyzeShard(request, filename, startTime, timer, resultMaps);
+            }
 
-                    distribution
-                            .computeIfAbsent(department, k -> new HashMap<>())
-                            .merge(gender, 1.0, Double::sum);
+            boolean split = GenderDistributionRequest.PARSER_SPLIT.equalsIgnoreCase(request.getParser());
+            boolean hasPath = request.getPath() != null && !request.getPath().isEmpty();
 
-                    departmentTotals.merge(department, 1L, Long::sum);
+            boolean raw = Boolean.TRUE.equals(request.getRawCounts());
+            Map<String, Map<String, Double>> distribution = null;
+            GenderCounts counts = null;
+            Map<String, Map<String, Long>> countMap = null;
+            long splitRows = 0;
+            ColumnarDataset dataset = columnarAllowed(request)
+                    ? columnarDataset(request, filename, columnarSibling(request, filename), timer) : null;
+            if (dataset != null) {
+                counts = dataset.count(0, dataset.getRowCount());
+                timer.lap(GenderDistributionResult.PHASE_SCAN);
+            } else if (split && !hasPath) {
+                // the original path reads the resource stream directly
+                InputStream inputStream = getClass().getClassLoader().getResourceAsStream(filename);
+                if (inputStream == null) {
+                    return new GenderDistributionResult("File not found in resources: " + filename);
+                }
+                timer.lap(GenderDistributionResult.PHASE_OPEN);
+                try (InputStream in = inputStream) {
+                    distribution = countWithSplit(in);
+                }
+                timer.lap(GenderDistributionResult.PHASE_SCAN);
+                splitRows = rowCount(distribution);
+                if (raw) countMap = toLongCounts(distribution);
+                toPercentages(distribution);
+            } else {
+                File file = csvFile(request, filename);
+                if (file == null) {
+                    return notFound(request, filename);
+                }
+                if (split) {
+                    try (InputStream in = new FileInputStream(file)) {
+                        timer.lap(GenderDistributionResult.PHASE_OPEN);
+                        distribution = countWithSplit(in);
+                    }
+                    timer.lap(GenderDistributionResult.PHASE_SCAN);
+                    splitRows = rowCount(distribution);
+                    if (raw) countMap = toLongCounts(distribution);
+                    toPercentages(distribution);
+                } else {
+                    counts = countWithByteScanner(file, threadCount(request), timer);
                 }
             }
 
-            for (Map.Entry<String, Map<String, Double>> entry : distribution.entrySet()) {
-                String department = entry.getKey();
-                Map<String, Double> genderCounts = entry.getValue();
-                long total = departmentTotals.get(department);
+            long rows = counts != null ? counts.rowCount() : splitRows;
+            if (Boolean.TRUE.equals(request.getSimulateProcessingDelay())) {
+                timer.lap(GenderDistributionResult.PHASE_FINALIZE);
+                simulateProcessingDelay(rows);
+                timer.lap(GenderDistributionResult.PHASE_SCAN);
+            }
 
-                for (Map.Entry<String, Double> genderEntry : genderCounts.entrySet()) {
-                    double percentage = (genderEntry.getValue() / total) * 100;
-                    genderCounts.put(genderEntry.getKey(),
-                            BigDecimal.valueOf(percentage).setScale(2, RoundingMode.HALF_UP).doubleValue());
-                }
+            if (counts != null && resultMaps) {
+                distribution = counts.toDistribution();
+                if (raw) countMap = counts.toCountMap();
             }
+            timer.lap(GenderDistributionResult.PHASE_FINALIZE);
 
             long endTime = System.currentTimeMillis();
-            return new GenderDistributionResult(distribution, endTime - startTime);
+            GenderDistributionResult result = new GenderDistributionResult(distribution, endTime - startTime);
+            result.setCounts(countMap);
+            if (counts != null && !resultMaps) result.defer(counts, raw);
+            result.setRowCount(rows);
+            result.setPhaseNanos(timer.phaseNanos());
+            return result;
 
         } catch (Exception e) {
             return new GenderDistributionResult("Exception: " + e.getMessage());
         }
     }
 
-    private void simulateProcessingDelay() {
+    /**
+     * Evaluates the request's group-by queries together in one pass over the CSV. The columnar
+     * sibling only holds department and gender, so these always read the CSV itself.
+     */
+    private GenderDistributionResult analyzeQueries(GenderDistributionRequest request, String filename,
+                                                    long startTime, PhaseTimer timer) throws IOException {
+        File file = csvFile(request, filename);
+        if (file == null) {
+            return notFound(request, filename);
+        }
+        ByteBuffer data = DatasetFiles.map(file);
+        if (data == null) {
+            throw new IOException("File too large for group-by queries: " + file);
+        }
+        timer.lap(GenderDistributionResult.PHASE_OPEN);
+        GenderDistributionResult result = new GenderDistributionResult(null, 0);
+        result.setAggregations(GroupByEngine.run(data, request.getQueries()));
+        timer.lap(GenderDistributionResult.PHASE_SCAN);
+        result.setExecutionTimeMillis(System.currentTimeMillis() - startTime);
+        result.setPhaseNanos(timer.phaseNanos());
+        return result;
+    }
+
+    private static String filename(GenderDistributionRequest request) {
+        return (request.getFilename() != null && !request.getFilename().isEmpty())
+                ? request.getFilename()
+                : "fake_employees_100k.csv"; // default file assumed in resources
+    }
+
+    /**
+     * Files whose content determines the result of {@code request}: the CSV and its columnar sibling,
+     * whichever exist.
+     */
+    List<File> inputFiles(GenderDistributionRequest request) throws IOException {
+        String filename = filename(request);
+        List<File> files = new ArrayList<>(2);
+        File csv = csvFile(request, filename);
+        if (csv != null) files.add(csv);
+        File binary = columnarSibling(request, filename);
+        if (binary != null) files.add(binary);
+        return files;
+    }
+
+    static boolean isSharded(GenderDistributionRequest request) {
+        return request.getShardCount() != null || request.getShardOffset() != null || request.getShardLength() != null;
+    }
+
+    /**
+     * Counts only the rows of one shard and returns them as raw counts, ready to be merged with
+     * {@link GenderDistributionMerger}. An index/count shard uses the columnar form when there is one and the
+     * request allows it; otherwise the shard is cut out of the mapped CSV with the byte scanner, whatever the parser.
+     */
+    private GenderDistributionResult analyzeShard(GenderDistributionRequest request, String filename,
+                                                  long startTime, PhaseTimer timer, boolean resultMaps)
+            throws IOException {
+        GenderCounts counts;
+        ColumnarDataset dataset = request.getShardCount() != null && columnarAllowed(request)
+                ? columnarDataset(request, filename, columnarSibling(request, filename), timer) : null;
+        if (dataset != null) {
+            long[] rows = shardRange(request, dataset.getRowCount());
+            counts = dataset.count((int) rows[0], (int) rows[1]);
+        } else {
+            File file = csvFile(request, filename);
+            if (file == null) {
+                return notFound(request, filename);
+            }
+            ByteBuffer data = DatasetFiles.map(file);
+            if (data == null) {
+                throw new IOException("File too large for sharded analysis: " + file);
+            }
+            timer.lap(GenderDistributionResult.PHASE_OPEN);
+            long[] bytes = shardRange(request, data.limit());
+            // a shard owns the lines that start inside it; only the first one holds the header
+            int from = CsvByteScanner.lineStartAtOrAfter(data, (int) bytes[0]);
+            int to = CsvByteScanner.lineStartAtOrAfter(data, (int) bytes[1]);
+            if (from == 0) from = Math.min(to, CsvByteScanner.lineStartAtOrAfter(data, 1));
+            ByteBuffer rows = data.duplicate();
+            rows.limit(to);
+            rows.position(from);
+
+            int threads = threadCount(request);
+            if (threads > 1) {
+                counts = new ParallelGenderCounter(new int[]{GENDER_COLUMN, DEPARTMENT_COLUMN}, MIN_FIELDS)
+                        .countRows(rows, threads);
+            } else {
+                counts = new GenderCounts();
+                new CsvByteScanner(new int[]{GENDER_COLUMN, DEPARTMENT_COLUMN}, MIN_FIELDS, counts).scan(rows);
+            }
+        }
+
+        timer.lap(GenderDistributionResult.PHASE_SCAN);
+        Map<String, Map<String, Double>> distribution = resultMaps ? counts.toDistribution() : null;
+        Map<String, Map<String, Long>> countMap = resultMaps ? counts.toCountMap() : null;
+        timer.lap(GenderDistributionResult.PHASE_FINALIZE);
+
+        GenderDistributionResult result = new GenderDistributionResult(distribution,
+                System.currentTimeMillis() - startTime);
+        result.setCounts(countMap);
+        if (!resultMaps) result.defer(counts, true);
+        result.setRowCount(counts.rowCount());
+        result.setPhaseNanos(timer.phaseNanos());
+        return result;
+    }
+
+    /**
+     * The {@code [from, to)} part of {@code size} units (bytes or rows) selected by the request's shard
+     * spec: shard index/count splits into near equal parts, offset/length is clipped to the size.
+     */
+    static long[] shardRange(GenderDistributionRequest request, long size) {
+        if (request.getShardCount() != null) {
+            int count = request.getShardCount();
+            int index = request.getShardIndex() != null ? request.getShardIndex() : 0;
+            if (count <= 0 || index < 0 || index >= count) {
+                throw new IllegalArgumentException("Invalid shard " + index + " of " + count);
+            }
+            return new long[]{size * index / count, size * (index + 1) / count};
+        }
+        long offset = request.getShardOffset() != null ? request.getShardOffset() : 0;
+        if (offset < 0 || (request.getShardLength() != null && request.getShardLength() < 0)) {
+            throw new IllegalArgumentException("Invalid shard range " + offset + "+" + request.getShardLength());
+        }
+        long from = Math.min(offset, size);
+        long length = request.getShardLength() != null ? request.getShardLength() : size;
+        long to = length >= size - from ? size : from + length;
+        return new long[]{from, to};
+    }
+
+    /**
+     * Original line-by-line path: decodes every line and splits it into strings.
+     * Kept for comparison with the byte scanner.
+     */
+    private Map<String, Map<String, Double>> countWithSplit(InputStream inputStream) throws IOException {
+        Map<String, Map<String, Double>> distribution = new HashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+        reader.readLine(); // Skip header
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] tokens = line.split(",", -1);
+            if (tokens.length < 5) continue;
+
+            String gender = tokens[2].trim();
+            String department = tokens[4].trim();
+
+            distribution
+                    .computeIfAbsent(department, k -> new HashMap<>())
+                    .merge(gender, 1.0, Double::sum);
+        }
+        return distribution;
+    }
+
+    /**
+     * Scans the memory mapped file and only looks at the gender and department columns, which are
+     * dictionary encoded and counted in a primitive matrix.
+     */
+    private GenderCounts countWithByteScanner(File file, int threads, PhaseTimer timer) throws IOException {
+        int[] columns = {GENDER_COLUMN, DEPARTMENT_COLUMN};
+        ByteBuffer data = DatasetFiles.map(file);
+        GenderCounts counts;
+        if (data == null) {
+            // too large for one mapping: stream it instead
+            counts = new GenderCounts();
+            try (InputStream in = new FileInputStream(file)) {
+                timer.lap(GenderDistributionResult.PHASE_OPEN);
+                new CsvByteScanner(columns, MIN_FIELDS, counts).scan(in, true);
+            }
+        } else if (threads > 1) {
+            timer.lap(GenderDistributionResult.PHASE_OPEN);
+            counts = new ParallelGenderCounter(columns, MIN_FIELDS).count(data, threads);
+        } else {
+            timer.lap(GenderDistributionResult.PHASE_OPEN);
+            counts = new GenderCounts();
+            data.position(CsvByteScanner.lineStartAtOrAfter(data, 1)); // skip header
+            new CsvByteScanner(columns, MIN_FIELDS, counts).scan(data);
+        }
+        timer.lap(GenderDistributionResult.PHASE_SCAN);
+        return counts;
+    }
+
+    /**
+     * The CSV to analyze: the request's path (inside the data directory, see {@link DatasetFiles#dataFile})
+     * when given, otherwise the resource (mappable copy). Returns null when it does not exist.
+     */
+    private File csvFile(GenderDistributionRequest request, String filename) throws IOException {
+        if (request.getPath() != null && !request.getPath().isEmpty()) {
+            return DatasetFiles.dataFile(request.getPath());
+        }
+        return DatasetFiles.resourceFile(getClass().getClassLoader(), filename);
+    }
+
+    private static GenderDistributionResult notFound(GenderDistributionRequest request, String filename) {
+        return new GenderDistributionResult(request.getPath() != null && !request.getPath().isEmpty()
+                ? "File not found: " + request.getPath()
+                : "File not found in resources: " + filename);
+    }
+
+    /**
+     * Pre-encoded {@link ColumnarDataset} next to the requested CSV ({@code x.csv} -> {@code x.bin}),
+     * or null when there is none.
+     */
+    private File columnarSibling(GenderDistributionRequest request, String filename) throws IOException {
+        if (request.getPath() != null && !request.getPath().isEmpty()) {
+            return DatasetFiles.dataFile(ColumnarDataset.siblingName(request.getPath()));
+        }
+        return DatasetFiles.resourceFile(getClass().getClassLoader(), ColumnarDataset.siblingName(filename));
+    }
+
+    /**
+     * Whether the request may be answered from a columnar form: it names neither a parser nor a thread count,
+     * both of which ask for a scan of the CSV.
+     */
+    private static boolean columnarAllowed(GenderDistributionRequest request) {
+        return request.getParser() == null && request.getThreads() == null;
+    }
+
+    /**
+     * The requested dataset in columnar form: read from the binary sibling when there is one that was encoded
+     * from the CSV as it is now (or there is no CSV), or, with a dataset cache, the CSV once it has been encoded
+     * in the background. Null when there is no columnar form to use yet, including a CSV with too many distinct
+     * values to encode; the caller then scans the CSV.
+     */
+    private ColumnarDataset columnarDataset(GenderDistributionRequest request, String filename, File binary,
+                                            PhaseTimer timer) throws IOException {
+        File csv = csvFile(request, filename);
+        if (binary != null) {
+            ColumnarDataset dataset;
+            if (datasets != null) {
+                dataset = datasets.get(binary, true);
+            } else {
+                ByteBuffer data = DatasetFiles.map(binary);
+                if (data == null) {
+                    throw new IOException("Columnar dataset too large: " + binary);
+                }
+                dataset = ColumnarDataset.read(data);
+            }
+            // a sibling left behind by a regenerated CSV is ignored
+            DatasetFingerprint source = csv == null ? null
+                    : datasets != null ? datasets.fingerprint(csv) : DatasetFingerprint.of(csv);
+            if (source == null || dataset.encodedFrom(source)) {
+                timer.lap(GenderDistributionResult.PHASE_OPEN);
+                return dataset;
+            }
+        }
+        if (datasets == null || csv == null) return null;
+        timer.lap(GenderDistributionResult.PHASE_OPEN);
+        return datasets.get(csv, false);
+    }
+
+    /**
+     * Encodes a CSV stream into the binary columnar form used by {@link #columnarSibling}.
+     */
+    static ColumnarDataset encode(InputStream csv) throws IOException {
+        return ColumnarDataset.fromCsv(csv, GENDER_COLUMN, DEPARTMENT_COLUMN, MIN_FIELDS);
+    }
+
+    /**
+     * Requested worker threads: 1 when not set, all available processors when set to 0 or less.
+     */
+    private static int threadCount(GenderDistributionRequest request) {
+        Integer threads = request.getThreads();
+        if (threads == null) return 1;
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Replaces the per-gender counts of every department by their percentage of the department total.
+     */
+    private void toPercentages(Map<String, Map<String, Double>> distribution) {
+        for (Map.Entry<String, Map<String, Double>> entry : distribution.entrySet()) {
+            Map<String, Double> genderCounts = entry.getValue();
+            long total = 0;
+            for (Double count : genderCounts.values()) total += count.longValue();
+
+            for (Map.Entry<String, Double> genderEntry : genderCounts.entrySet()) {
+                genderEntry.setValue(GenderCounts.percentage(genderEntry.getValue(), total));
+            }
+        }
+    }
+
+    /**
+     * Copies the per-gender counts of the split path before they are turned into percentages.
+     */
+    private static Map<String, Map<String, Long>> toLongCounts(Map<String, Map<String, Double>> distribution) {
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        for (Map.Entry<String, Map<String, Double>> entry : distribution.entrySet()) {
+            Map<String, Long> genderCounts = new HashMap<>();
+            for (Map.Entry<String, Double> genderEntry : entry.getValue().entrySet()) {
+                genderCounts.put(genderEntry.getKey(), genderEntry.getValue().longValue());
+            }
+            counts.put(entry.getKey(), genderCounts);
+        }
+        return counts;
+    }
+
+    private static long rowCount(Map<String, Map<String, Double>> distribution) {
+        long rows = 0;
+        for (Map<String, Double> genderCounts : distribution.values()) {
+            for (Double count : genderCounts.values()) rows += count.longValue();
+        }
+        return rows;
+    }
+
+    /**
+     * Runs the per-row delay once for every counted row. It is charged to the scan phase.
+     */
+    private void simulateProcessingDelay(long rows) {
+        double sink = 0;
+        for (long r = 0; r < rows; r++) {
+            sink += simulateProcessingDelay();
+        }
+        delaySink = sink;
+    }
+
+    private double simulateProcessingDelay() {
+        double temp = 0;
 //        for (int i = 0; i < 50; i++) {
         for (int i = 0; i < 100; i++) {
-            double temp = Math.sqrt(i) * Math.pow(i, 0.5);
+            temp += Math.sqrt(i) * Math.pow(i, 0.5);
         }
+        return temp;
     }
 }
@@ -0,0 +1,222 @@
+package com.mpmusc.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates several {@link AggregationQuery} breakdowns in a single pass over a CSV. The union of all
+ * referenced columns is located once per row by {@link CsvByteScanner}; every query then applies its
+ * filters and counts the row in its own dictionary-encoded group x pivot matrix.
+ */
+class GroupByEngine implements CsvByteScanner.RowHandler {
+
+    private static final String ALL_ROWS = "all";
+    private static final byte GROUP_SEPARATOR = '|';
+
+    private final List<String> header;
+    private final List<Integer> columns = new ArrayList<>(); // scanner columns; slot = position in this list
+    private final List<CompiledQuery> queries = new ArrayList<>();
+    private byte[] keyBuffer = new byte[256];
+
+    /**
+     * @param headerLine first line of the CSV, used to resolve column names
+     */
+    GroupByEngine(String headerLine, List<AggregationQuery> queries) {
+        List<String> names = new ArrayList<>();
+        for (String name : headerLine.split(",", -1)) names.add(name.trim());
+        this.header = names;
+        for (int i = 0; i < queries.size(); i++) {
+            this.queries.add(new CompiledQuery(queries.get(i), i));
+        }
+    }
+
+    /**
+     * Runs every query over the lines of {@code data} (header included) and returns the results keyed by
+     * query name, in query order.
+     */
+    static Map<String, Map<String, Map<String, Double>>> run(ByteBuffer data, List<AggregationQuery> queries) {
+        int firstRow = CsvByteScanner.lineStartAtOrAfter(data, data.position() + 1);
+        byte[] headerBytes = new byte[firstRow - data.position()];
+        ByteBuffer headerView = data.duplicate();
+        headerView.get(headerBytes);
+        GroupByEngine engine = new GroupByEngine(new String(headerBytes, StandardCharsets.UTF_8), queries);
+
+        ByteBuffer rows = data.duplicate();
+        rows.position(firstRow);
+        engine.scanner().scan(rows);
+        return engine.results();
+    }
+
+    CsvByteScanner scanner() {
+        int[] scannerColumns = new int[columns.size()];
+        for (int i = 0; i < scannerColumns.length; i++) scannerColumns[i] = columns.get(i);
+        // rows too short for every query are skipped by the scanner; each query checks its own columns, so a
+        // row only drops out of the queries it cannot serve
+        int minFields = Integer.MAX_VALUE;
+        for (CompiledQuery query : queries) minFields = Math.min(minFields, query.fieldsNeeded);
+        return new CsvByteScanner(scannerColumns, queries.isEmpty() ? 1 : minFields, this);
+    }
+
+    @Override
+    public void onRow(byte[] buf, int[] starts, int[] ends) {
+        for (CompiledQuery query : queries) {
+            query.accept(buf, starts, ends);
+        }
+    }
+
+    Map<String, Map<String, Map<String, Double>>> results() {
+        Map<String, Map<String, Map<String, Double>>> results = new LinkedHashMap<>();
+        for (CompiledQuery query : queries) {
+            results.put(query.name, query.result());
+        }
+        return results;
+    }
+
+    private int slotOf(String column) {
+        int index = resolveColumn(column);
+        int slot = columns.indexOf(index);
+        if (slot >= 0) return slot;
+        columns.add(index);
+        return columns.size() - 1;
+    }
+
+    private int resolveColumn(String column) {
+        if (column == null) throw new IllegalArgumentException("Column reference is missing");
+        String trimmed = column.trim();
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).equalsIgnoreCase(trimmed)) return i;
+        }
+        try {
+            int index = Integer.parseInt(trimmed);
+            if (index >= 0 && index < header.size()) return index;
+        } catch (NumberFormatException ignored) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Unknown column: " + column);
+    }
+
+    private final class CompiledQuery {
+        final String name;
+        final boolean percentage;
+        final int[] requiredSlots;              // every slot this query reads
+        final int fieldsNeeded;                 // fields a row needs to hold all of them
+        final int[] groupSlots;
+        final int pivotSlot;                    // -1 without pivot column
+        final int[] filterSlots;
+        final byte[][][] filterValues;
+        final ByteDictionary groups = new ByteDictionary();
+        final ByteDictionary pivots = new ByteDictionary();
+        final CountMatrix counts = new CountMatrix();
+
+        CompiledQuery(AggregationQuery query, int position) {
+            this.name = query.getName() != null && !query.getName().isEmpty() ? query.getName() : "query" + position;
+            String output = query.getOutput();
+            if (output != null && !AggregationQuery.OUTPUT_COUNT.equalsIgnoreCase(output)
+                    && !AggregationQuery.OUTPUT_PERCENTAGE.equalsIgnoreCase(output)) {
+                throw new IllegalArgumentException("Unknown output for " + name + ": " + output);
+            }
+            this.percentage = !AggregationQuery.OUTPUT_COUNT.equalsIgnoreCase(output);
+
+            List<String> groupBy = query.getGroupBy() != null ? query.getGroupBy() : Collections.<String>emptyList();
+            this.groupSlots = new int[groupBy.size()];
+            for (int i = 0; i < groupSlots.length; i++) groupSlots[i] = slotOf(groupBy.get(i));
+            this.pivotSlot = query.getPivot() != null ? slotOf(query.getPivot()) : -1;
+
+            List<AggregationFilter> filters = query.getFilters() != null
+                    ? query.getFilters() : Collections.<AggregationFilter>emptyList();
+            this.filterSlots = new int[filters.size()];
+            this.filterValues = new byte[filters.size()][][];
+            for (int i = 0; i < filterSlots.length; i++) {
+                AggregationFilter filter = filters.get(i);
+                filterSlots[i] = slotOf(filter.getColumn());
+                List<String> values = filter.getValues() != null ? filter.getValues() : Collections.<String>emptyList();
+                filterValues[i] = new byte[values.size()][];
+                for (int v = 0; v < values.size(); v++) {
+                    filterValues[i][v] = values.get(v).trim().getBytes(StandardCharsets.UTF_8);
+                }
+            }
+            List<Integer> required = new ArrayList<>();
+            for (int slot : groupSlots) required.add(slot);
+            if (pivotSlot >= 0) required.add(pivotSlot);
+            for (int slot : filterSlots) required.add(slot);
+            this.requiredSlots = new int[required.size()];
+            int maxColumn = -1;
+            for (int i = 0; i < requiredSlots.length; i++) {
+                requiredSlots[i] = required.get(i);
+                maxColumn = Math.max(maxColumn, columns.get(requiredSlots[i]));
+            }
+            this.fieldsNeeded = Math.max(1, maxColumn + 1);
+
+            if (pivotSlot < 0) pivots.idOf(percentage ? AggregationQuery.OUTPUT_PERCENTAGE : AggregationQuery.OUTPUT_COUNT);
+        }
+
+        void accept(byte[] buf, int[] starts, int[] ends) {
+            for (int slot : requiredSlots) {
+                if (starts[slot] < 0) return;
+            }
+            for (int i = 0; i < filterSlots.length; i++) {
+                if (!matches(filterValues[i], buf, starts[filterSlots[i]], ends[filterSlots[i]])) return;
+            }
+            int group = groupId(buf, starts, ends);
+            int pivot = pivotSlot < 0 ? 0 : pivots.idOf(buf, starts[pivotSlot], ends[pivotSlot]);
+            counts.increment(group, pivot);
+        }
+
+        private int groupId(byte[] buf, int[] starts, int[] ends) {
+            if (groupSlots.length == 1) {
+                return groups.idOf(buf, starts[groupSlots[0]], ends[groupSlots[0]]);
+            }
+            if (groupSlots.length == 0) {
+                return groups.idOf(keyBuffer, 0, 0);
+            }
+            // several columns: build the composite key in a reused buffer
+            int length = 0;
+            for (int i = 0; i < groupSlots.length; i++) {
+                int start = starts[groupSlots[i]];
+                int size = ends[groupSlots[i]] - start;
+                if (length + size + 1 > keyBuffer.length) {
+                    keyBuffer = Arrays.copyOf(keyBuffer, (length + size + 1) * 2);
+                }
+                if (i > 0) keyBuffer[length++] = GROUP_SEPARATOR;
+                System.arraycopy(buf, start, keyBuffer, length, size);
+                length += size;
+            }
+            return groups.idOf(keyBuffer, 0, length);
+        }
+
+        Map<String, Map<String, Double>> result() {
+            long allRows = 0;
+            if (pivotSlot < 0) {
+                for (int g = 0; g < groups.size(); g++) allRows += counts.rowTotal(g);
+            }
+            Map<String, Map<String, Double>> result = new HashMap<>();
+            for (int g = 0; g < groups.size(); g++) {
+                long total = pivotSlot < 0 ? allRows : counts.rowTotal(g);
+                Map<String, Double> values = new HashMap<>();
+                for (int p = 0; p < pivots.size(); p++) {
+                    long count = counts.get(g, p);
+                    if (count > 0) {
+                        values.put(pivots.name(p), percentage ? GenderCounts.percentage(count, total) : (double) count);
+                    }
+                }
+                String group = groupSlots.length == 0 ? ALL_ROWS : groups.name(g);
+                result.put(group, values);
+            }
+            return result;
+        }
+    }
+
+    private static boolean matches(byte[][] values, byte[] buf, int start, int end) {
+        for (byte[] value : values) {
+            if (ByteDictionary.equals(value, buf, start, end)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,98 @@
+package com.mpmusc.core;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts department x gender over an in-memory CSV on several threads. The data is split into
+ * byte ranges aligned to line starts; every range is scanned on a fork-join worker into its own
+ * {@link GenderCounts}, and the partial counts are merged while the tasks join.
+ * <p>
+ * The workers of each requested thread count belong to one pool, created the first time that count is asked
+ * for and kept for the container's lifetime, so warm invocations do not start threads.
+ */
+class ParallelGenderCounter {
+
+    // below this size a range is scanned directly instead of being split further
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    // thread counts above this share the largest pool, which bounds the number of pools
+    static final int MAX_THREADS = 256;
+
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private final int[] columns;
+    private final int minFields;
+
+    ParallelGenderCounter(int[] columns, int minFields) {
+        this.columns = columns;
+        this.minFields = minFields;
+    }
+
+    /**
+     * Counts the rows between the position and the limit of {@code data}; the first line there is
+     * expected to be the header.
+     */
+    GenderCounts count(ByteBuffer data, int threads) {
+        ByteBuffer rows = data.duplicate();
+        rows.position(CsvByteScanner.lineStartAtOrAfter(data, data.position() + 1));
+        return countRows(rows, threads);
+    }
+
+    /**
+     * Counts the rows between the position and the limit of {@code data}, which holds no header.
+     */
+    GenderCounts countRows(ByteBuffer data, int threads) {
+        int length = data.remaining();
+        int chunkBytes = Math.max(MIN_CHUNK_BYTES, length / (threads * 4) + 1);
+        return pool(threads).invoke(new RangeTask(data, data.position(), data.limit(), chunkBytes));
+    }
+
+    /** The pool of {@code threads} workers (at most {@link #MAX_THREADS}), created on first use. */
+    static ForkJoinPool pool(int threads) {
+        return POOLS.computeIfAbsent(Math.min(Math.max(1, threads), MAX_THREADS), parallelism ->
+                new ForkJoinPool(parallelism, pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("gender-counter-" + parallelism + "-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                }, null, false));
+    }
+
+    private class RangeTask extends RecursiveTask<GenderCounts> {
+        private final ByteBuffer data;
+        private final int from;
+        private final int to;
+        private final int chunkBytes;
+
+        RangeTask(ByteBuffer data, int from, int to, int chunkBytes) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+            this.chunkBytes = chunkBytes;
+        }
+
+        @Override
+        protected GenderCounts compute() {
+            if (to - from > chunkBytes) {
+                int mid = CsvByteScanner.lineStartAtOrAfter(data, from + (to - from) / 2);
+                if (mid > from && mid < to) {
+                    RangeTask right = new RangeTask(data, mid, to, chunkBytes);
+                    right.fork();
+                    GenderCounts counts = new RangeTask(data, from, mid, chunkBytes).compute();
+                    counts.mergeFrom(right.join());
+                    return counts;
+                }
+            }
+            GenderCounts counts = new GenderCounts();
+            ByteBuffer range = data.duplicate();
+            range.limit(to);
+            range.position(from);
+            new CsvByteScanner(columns, minFields, counts).scan(range);
+            return counts;
+        }
+    }
+}
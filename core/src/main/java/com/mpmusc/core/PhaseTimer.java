@@ -0,0 +1,24 @@
+package com.mpmusc.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits the time of one analysis into consecutive phases measured with {@link System#nanoTime()}.
+ * Each {@link #lap} charges the time since the previous lap (or since construction) to a phase.
+ */
+final class PhaseTimer {
+
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private long mark = System.nanoTime();
+
+    void lap(String phase) {
+        long now = System.nanoTime();
+        phaseNanos.merge(phase, now - mark, Long::sum);
+        mark = now;
+    }
+
+    Map<String, Long> phaseNanos() {
+        return phaseNanos;
+    }
+}
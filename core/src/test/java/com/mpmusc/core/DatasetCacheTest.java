@@ -0,0 +1,74 @@
+package com.mpmusc.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DatasetCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private final Queue<Runnable> encoder = new ArrayDeque<>();
+    private final DatasetCache cache = new DatasetCache(encoder::add);
+
+    @Test
+    void csvMissIsEncodedInTheBackgroundOnce() throws IOException {
+        File csv = write("employees.csv", 500);
+
+        assertNull(cache.get(csv, false));
+        assertNull(cache.get(csv, false));
+        assertEquals(1, encoder.size());
+
+        encoder.poll().run();
+        ColumnarDataset dataset = cache.get(csv, false);
+        assertNotNull(dataset);
+        assertEquals(500, dataset.getRowCount());
+    }
+
+    @Test
+    void changedCsvIsEncodedAgain() throws IOException {
+        File csv = write("employees.csv", 500);
+        cache.get(csv, false);
+        encoder.poll().run();
+
+        write("employees.csv", 700);
+        assertNull(cache.get(csv, false));
+        encoder.poll().run();
+        assertEquals(700, cache.get(csv, false).getRowCount());
+    }
+
+    @Test
+    void keepsTheMostRecentlyUsedDatasets() throws IOException {
+        File[] csvs = new File[DatasetCache.MAX_DATASETS + 1];
+        for (int i = 0; i < csvs.length; i++) {
+            csvs[i] = write("employees" + i + ".csv", 10 + i);
+            cache.get(csvs[i], false);
+            encoder.poll().run();
+        }
+
+        assertNull(cache.get(csvs[0], false));
+        assertEquals(1, encoder.size());
+        for (int i = 1; i < csvs.length; i++) {
+            assertEquals(10 + i, cache.get(csvs[i], false).getRowCount());
+        }
+    }
+
+    private File write(String name, int rows) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, GenderDistributionServiceTest.randomCsv(new Random(rows), rows).getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+}
@@ -0,0 +1,91 @@
+package com.mpmusc.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GenderDistributionMergerTest {
+
+    private static final String[] GENDERS = {"Male", "Female", "Other"};
+    private static final String[] DEPARTMENTS = {"Sales", "HR", "Engineering", "Legal"};
+
+    @Test
+    void mergeIsAssociative() {
+        Random random = new Random(11);
+        for (int round = 0; round < 100; round++) {
+            GenderDistributionResult a = randomPartial(random);
+            GenderDistributionResult b = randomPartial(random);
+            GenderDistributionResult c = randomPartial(random);
+
+            GenderDistributionResult flat = GenderDistributionMerger.merge(a, b, c);
+            GenderDistributionResult left = GenderDistributionMerger.merge(GenderDistributionMerger.merge(a, b), c);
+            GenderDistributionResult right = GenderDistributionMerger.merge(a, GenderDistributionMerger.merge(b, c));
+
+            assertSameMerge(flat, left);
+            assertSameMerge(flat, right);
+        }
+    }
+
+    @Test
+    void mergeComputesPercentagesFromCombinedCounts() {
+        // 33.33% and 100% male would average to 66.67%; from the counts it is 2 of 4
+        GenderDistributionResult a = partial(counts("Sales", "Male", 1L, "Sales", "Female", 2L));
+        GenderDistributionResult b = partial(counts("Sales", "Male", 1L));
+
+        GenderDistributionResult merged = GenderDistributionMerger.merge(Arrays.asList(a, b));
+
+        assertEquals(50.0, merged.getDistribution().get("Sales").get("Male"));
+        assertEquals(50.0, merged.getDistribution().get("Sales").get("Female"));
+        assertEquals(4L, merged.getRowCount());
+        assertEquals(2L, merged.getCounts().get("Sales").get("Male"));
+    }
+
+    @Test
+    void rejectsPartialsWithoutRawCounts() {
+        GenderDistributionResult noCounts = new GenderDistributionResult(new HashMap<>(), 1);
+        GenderDistributionResult failed = new GenderDistributionResult("Exception: boom");
+
+        assertThrows(IllegalArgumentException.class, () -> GenderDistributionMerger.merge(noCounts));
+        assertThrows(IllegalArgumentException.class, () -> GenderDistributionMerger.merge(failed));
+    }
+
+    private static void assertSameMerge(GenderDistributionResult expected, GenderDistributionResult actual) {
+        assertEquals(expected.getDistribution(), actual.getDistribution());
+        assertEquals(expected.getCounts(), actual.getCounts());
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        assertEquals(expected.getExecutionTimeMillis(), actual.getExecutionTimeMillis());
+    }
+
+    private static GenderDistributionResult randomPartial(Random random) {
+        GenderCounts counts = new GenderCounts();
+        int cells = random.nextInt(8);
+        for (int i = 0; i < cells; i++) {
+            counts.add(DEPARTMENTS[random.nextInt(DEPARTMENTS.length)], GENDERS[random.nextInt(GENDERS.length)],
+                    1 + random.nextInt(1000));
+        }
+        GenderDistributionResult partial = partial(counts.toCountMap());
+        partial.setExecutionTimeMillis(random.nextInt(500));
+        return partial;
+    }
+
+    private static GenderDistributionResult partial(Map<String, Map<String, Long>> counts) {
+        GenderDistributionResult partial = new GenderDistributionResult(null, 0);
+        partial.setCounts(counts);
+        return partial;
+    }
+
+    private static Map<String, Map<String, Long>> counts(Object... departmentGenderCount) {
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        for (int i = 0; i < departmentGenderCount.length; i += 3) {
+            counts.computeIfAbsent((String) departmentGenderCount[i], k -> new HashMap<>())
+                    .put((String) departmentGenderCount[i + 1], (Long) departmentGenderCount[i + 2]);
+        }
+        return counts;
+    }
+}
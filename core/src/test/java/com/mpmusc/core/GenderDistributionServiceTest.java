@@ -0,0 +1,247 @@
+package com.mpmusc.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenderDistributionServiceTest {
+
+    private static final String HEADER = "id,name,gender,age,department,salary\n";
+    private static final String[] GENDERS = {"Male", "Female", "Other", " Female ", ""};
+    private static final String[] DEPARTMENTS = {"Sales", "HR", "Engineering", " Legal", "R&D ", ""};
+
+    @TempDir
+    Path dir;
+
+    private final GenderDistributionService service = new GenderDistributionService();
+
+    @BeforeEach
+    void useTempDataDir() {
+        System.setProperty(DatasetFiles.DATA_DIR_PROPERTY, dir.toString());
+    }
+
+    @AfterEach
+    void clearDataDir() {
+        System.clearProperty(DatasetFiles.DATA_DIR_PROPERTY);
+    }
+
+    @Test
+    void byteScannerMatchesSplitParserOnIrregularRows() throws IOException {
+        String csv = HEADER
+                + "1,Ann,Female,30,Sales,100\n"
+                + "2,Bob, Male ,41, Sales ,200\n"
+                + "3,Cid,Male,25,HR,300\r\n"
+                + "4,Dee,Female,33\n"              // too few fields
+                + "\n"
+                + "5,Eve,,29,HR,150\n"             // empty gender
+                + "6,Fay,Female,52,,120\n"         // empty department
+                + "7,Gus,Male,38,HR\n"             // exactly the fields needed
+                + "8,Hal,Male,44,Sales,90,extra,columns\n"
+                + "9,Ivy,Female,27,HR,80";         // no trailing newline
+        write("irregular.csv", csv);
+
+        assertSameResult("irregular.csv", null);
+    }
+
+    @Test
+    void byteScannerMatchesSplitParserOnLargeFile() throws IOException {
+        // large enough for the parallel counter to split it into several ranges
+        write("large.csv", randomCsv(new Random(42), 60_000));
+
+        assertSameResult("large.csv", null);
+        assertSameResult("large.csv", 4);
+    }
+
+    @Test
+    void streamScanMatchesSplitParser() throws IOException {
+        String csv = randomCsv(new Random(7), 5_000);
+        write("stream.csv", csv);
+
+        GenderCounts counts = new GenderCounts();
+        new CsvByteScanner(new int[]{2, 4}, 5, counts)
+                .scan(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true);
+
+        GenderDistributionResult split = analyze("stream.csv", GenderDistributionRequest.PARSER_SPLIT, null);
+        assertEquals(split.getCounts(), counts.toCountMap());
+        assertEquals(split.getDistribution(), counts.toDistribution());
+    }
+
+    @Test
+    void shardsCutAtEveryByteCountEachRowOnce() throws IOException {
+        String csv = HEADER
+                + "1,Ann,Female,30,Sales,100\n"
+                + "2,Bob,Male,41,Sales,200\r\n"
+                + "3,Cid,Male,25,HR,300\n"
+                + "4,Dee,Female,33,HR,400";
+        write("shards.csv", csv);
+        GenderDistributionResult whole = analyze("shards.csv", GenderDistributionRequest.PARSER_BYTES, null);
+        int length = csv.getBytes(StandardCharsets.UTF_8).length;
+
+        // includes cuts right on a line start, right after one and on the newline before one
+        for (int cut = 0; cut <= length; cut++) {
+            GenderDistributionResult first = shard("shards.csv", 0, cut);
+            GenderDistributionResult second = shard("shards.csv", cut, length - cut);
+            assertNull(first.getError());
+            assertNull(second.getError());
+
+            GenderDistributionResult merged = GenderDistributionMerger.merge(first, second);
+            assertEquals(whole.getCounts(), merged.getCounts(), "cut at " + cut);
+            assertEquals(whole.getRowCount(), merged.getRowCount(), "cut at " + cut);
+        }
+    }
+
+    @Test
+    void shardStartingOnLineStartOwnsThatRow() throws IOException {
+        String row = "1,Ann,Female,30,Sales,100\n";
+        write("boundary.csv", HEADER + row + "2,Bob,Male,41,HR,200\n");
+        int boundary = HEADER.length() + row.length(); // first byte of Bob's row
+
+        GenderDistributionResult before = shard("boundary.csv", 0, boundary);
+        GenderDistributionResult after = shard("boundary.csv", boundary, 1);
+
+        assertEquals(Long.valueOf(1), before.getRowCount());
+        assertEquals(Long.valueOf(1), before.getCounts().get("Sales").get("Female"));
+        assertEquals(Long.valueOf(1), after.getRowCount());
+        assertEquals(Long.valueOf(1), after.getCounts().get("HR").get("Male"));
+    }
+
+    @Test
+    void headerOnlyShardIsEmpty() throws IOException {
+        write("rows.csv", HEADER + "1,Ann,Female,30,Sales,100\n");
+        write("header.csv", HEADER);
+
+        GenderDistributionResult headerPart = shard("rows.csv", 0, HEADER.length());
+        assertNull(headerPart.getError());
+        assertEquals(Long.valueOf(0), headerPart.getRowCount());
+        assertTrue(headerPart.getCounts().isEmpty());
+
+        for (int index = 0; index < 3; index++) {
+            GenderDistributionRequest request = request("header.csv", null, null);
+            request.setShardIndex(index);
+            request.setShardCount(3);
+            GenderDistributionResult result = service.analyze(request);
+            assertNull(result.getError());
+            assertEquals(Long.valueOf(0), result.getRowCount());
+            assertTrue(result.getCounts().isEmpty());
+        }
+    }
+
+    @Test
+    void indexShardsCoverTheFile() throws IOException {
+        write("indexed.csv", randomCsv(new Random(3), 1_000));
+        GenderDistributionResult whole = analyze("indexed.csv", GenderDistributionRequest.PARSER_BYTES, null);
+
+        List<GenderDistributionResult> shards = new ArrayList<>();
+        for (int index = 0; index < 7; index++) {
+            GenderDistributionRequest request = request("indexed.csv", null, null);
+            request.setShardIndex(index);
+            request.setShardCount(7);
+            shards.add(service.analyze(request));
+        }
+        GenderDistributionResult merged = GenderDistributionMerger.merge(shards);
+
+        assertEquals(whole.getDistribution(), merged.getDistribution());
+        assertEquals(whole.getCounts(), merged.getCounts());
+        assertEquals(whole.getRowCount(), merged.getRowCount());
+    }
+
+    @Test
+    void columnarSiblingIsUsedOnlyWhileItMatchesTheCsv() throws IOException {
+        String original = randomCsv(new Random(1), 300);
+        write("sibling.csv", original);
+        try (OutputStream out = Files.newOutputStream(dir.resolve("sibling.bin"))) {
+            encode(original).write(out);
+        }
+        GenderDistributionRequest request = request("sibling.csv", null, null);
+        request.setRawCounts(null);
+        assertEquals(Long.valueOf(300), service.analyze(request).getRowCount());
+
+        // the CSV is regenerated, the sibling is not
+        write("sibling.csv", randomCsv(new Random(2), 450));
+        assertEquals(Long.valueOf(450), service.analyze(request).getRowCount());
+    }
+
+    @Test
+    void explicitParserOrThreadsScanTheCsvEvenWithAMatchingSibling() throws IOException {
+        write("scanned.csv", randomCsv(new Random(1), 300));
+        DatasetFingerprint csv = DatasetFingerprint.of(dir.resolve("scanned.csv").toFile());
+        // claims the CSV as its source but holds a single row, so it shows which form answered
+        ColumnarDataset sibling = new ColumnarDataset(csv.length(), csv.crc(), new String[]{"Sales"},
+                new String[]{"Male"}, 1, new byte[]{0}, new byte[]{0});
+        try (OutputStream out = Files.newOutputStream(dir.resolve("scanned.bin"))) {
+            sibling.write(out);
+        }
+
+        assertEquals(Long.valueOf(1), analyze("scanned.csv", null, null).getRowCount());
+        assertEquals(Long.valueOf(300),
+                analyze("scanned.csv", GenderDistributionRequest.PARSER_BYTES, null).getRowCount());
+        assertEquals(Long.valueOf(300), analyze("scanned.csv", null, 2).getRowCount());
+    }
+
+    private static ColumnarDataset encode(String csv) throws IOException {
+        return GenderDistributionService.encode(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private GenderDistributionResult shard(String path, long offset, long length) {
+        GenderDistributionRequest request = request(path, null, null);
+        request.setShardOffset(offset);
+        request.setShardLength(length);
+        return service.analyze(request);
+    }
+
+    private void assertSameResult(String path, Integer threads) {
+        GenderDistributionResult split = analyze(path, GenderDistributionRequest.PARSER_SPLIT, threads);
+        GenderDistributionResult bytes = analyze(path, GenderDistributionRequest.PARSER_BYTES, threads);
+
+        assertNull(split.getError());
+        assertNull(bytes.getError());
+        assertEquals(split.getDistribution(), bytes.getDistribution());
+        assertEquals(split.getCounts(), bytes.getCounts());
+        assertEquals(split.getRowCount(), bytes.getRowCount());
+    }
+
+    private GenderDistributionResult analyze(String path, String parser, Integer threads) {
+        return service.analyze(request(path, parser, threads));
+    }
+
+    private static GenderDistributionRequest request(String path, String parser, Integer threads) {
+        GenderDistributionRequest request = new GenderDistributionRequest();
+        request.setPath(path);
+        request.setParser(parser);
+        request.setThreads(threads);
+        request.setRawCounts(true);
+        return request;
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String randomCsv(Random random, int rows) {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < rows; i++) {
+            csv.append(i).append(",Name").append(i).append(',')
+                    .append(GENDERS[random.nextInt(GENDERS.length)]).append(',')
+                    .append(20 + random.nextInt(45)).append(',')
+                    .append(DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]).append(',')
+                    .append(random.nextInt(100_000))
+                    .append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+        }
+        return csv.toString();
+    }
+}
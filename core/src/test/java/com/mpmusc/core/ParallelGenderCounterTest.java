@@ -0,0 +1,38 @@
+package com.mpmusc.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ParallelGenderCounterTest {
+
+    @Test
+    void poolHasTheRequestedParallelismAndIsReused() {
+        assertEquals(2, ParallelGenderCounter.pool(2).getParallelism());
+        assertEquals(3, ParallelGenderCounter.pool(3).getParallelism());
+        assertSame(ParallelGenderCounter.pool(2), ParallelGenderCounter.pool(2));
+        assertEquals(ParallelGenderCounter.MAX_THREADS,
+                ParallelGenderCounter.pool(ParallelGenderCounter.MAX_THREADS + 1).getParallelism());
+    }
+
+    @Test
+    void countsTheSameOnAnyNumberOfThreads() {
+        byte[] csv = GenderDistributionServiceTest.randomCsv(new Random(5), 80_000).getBytes(StandardCharsets.UTF_8);
+        int[] columns = {2, 4};
+
+        GenderCounts single = new GenderCounts();
+        ByteBuffer rows = ByteBuffer.wrap(csv);
+        rows.position(CsvByteScanner.lineStartAtOrAfter(rows, 1));
+        new CsvByteScanner(columns, 5, single).scan(rows);
+
+        for (int threads : new int[]{1, 2, 3, 8}) {
+            GenderCounts parallel = new ParallelGenderCounter(columns, 5).count(ByteBuffer.wrap(csv), threads);
+            assertEquals(single.toCountMap(), parallel.toCountMap(), threads + " threads");
+        }
+    }
+}
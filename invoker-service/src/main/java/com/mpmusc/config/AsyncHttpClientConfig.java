@@ -0,0 +1,75 @@
+package com.mpmusc.config;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.ssl.SSLContextBuilder;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+
+/**
+ * Non-blocking HTTP clients for the function invokers, one per provider. Requests are multiplexed over a few
+ * I/O reactor threads, so the number of in-flight invocations is bounded by the connection pool, not by threads.
+ * Connections are kept alive and reused, and every client resumes TLS sessions from its own SSLContext, so
+ * handshakes are paid once per connection instead of being counted in each invocation's RTT.
+ */
+@Configuration
+public class AsyncHttpClientConfig {
+
+    // Azure (or other secure calls)
+    @Bean(name = "azureHttpClient", destroyMethod = "close")
+    public CloseableHttpAsyncClient azureHttpClient(AzureProperties azureProperties) {
+        return pooledClient(azureProperties.getHttp(), SSLContexts.createSystemDefault(), null);
+    }
+
+    // Trust-all for OpenWhisk
+    @Bean(name = "openWhiskHttpClient", destroyMethod = "close")
+    public CloseableHttpAsyncClient openWhiskHttpClient(OpenWhiskProperties openWhiskProperties) throws Exception {
+        SSLContext sslContext = SSLContextBuilder.create()
+                .loadTrustMaterial(null, (chain, authType) -> true)
+                .build();
+        return pooledClient(openWhiskProperties.getHttp(), sslContext, NoopHostnameVerifier.INSTANCE);
+    }
+
+    private static CloseableHttpAsyncClient pooledClient(HttpClientSettings settings, SSLContext sslContext,
+                                                         HostnameVerifier hostnameVerifier) {
+        var tlsStrategy = ClientTlsStrategyBuilder.create()
+                .setSslContext(sslContext)
+                .setHostnameVerifier(hostnameVerifier)
+                .build();
+
+        var connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setTlsStrategy(tlsStrategy)
+                .setMaxConnTotal(settings.getMaxConnections())
+                .setMaxConnPerRoute(settings.getMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofSeconds(settings.getConnectTimeoutSeconds()))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(settings.getValidateAfterInactivityMillis()))
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(settings.isHttp2() ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1)
+                        .build())
+                .build();
+
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom().setSoKeepAlive(true).build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(settings.getIdleTimeoutSeconds()))
+                .build();
+        client.start();
+        return client;
+    }
+}
@@ -17,6 +17,7 @@ public class AwsProperties {
     private String region;
     private BigDecimal estimatedCost;
     private Integer concurrency;
+    private HttpClientSettings http = new HttpClientSettings();
 
     @Data
     public static class Lambda {
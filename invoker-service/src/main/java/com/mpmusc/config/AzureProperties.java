@@ -15,6 +15,7 @@ public class AzureProperties {
     private String region;
     private BigDecimal estimatedCost;
     private Integer concurrency;
+    private HttpClientSettings http = new HttpClientSettings();
 
     @Data
     public static class Function {
@@ -0,0 +1,28 @@
+package com.mpmusc.config;
+
+import lombok.Data;
+
+/**
+ * Connection pool settings of one provider's HTTP client ({@code <provider>.http.*}).
+ */
+@Data
+public class HttpClientSettings {
+
+    // pooled connections, i.e. HTTP/1.1 invocations in flight (an HTTP/2 connection carries many)
+    private int maxConnections = 1000;
+    // connections opened at startup so the first invocations do not pay for TCP and TLS handshakes;
+    // null opens as many as the provider's concurrency
+    private Integer prewarmConnections;
+    // idle connections are closed before the server's keep-alive timeout would drop them under a request
+    private long idleTimeoutSeconds = 50;
+    // a connection idle for longer is checked before it is reused
+    private long validateAfterInactivityMillis = 2000;
+    private long connectTimeoutSeconds = 30;
+    // negotiate HTTP/2 via ALPN on TLS endpoints; HTTP/1.1 otherwise
+    private boolean http2 = true;
+
+    public int prewarmConnections(Integer concurrency) {
+        if (prewarmConnections != null) return prewarmConnections;
+        return concurrency != null ? concurrency : 0;
+    }
+}
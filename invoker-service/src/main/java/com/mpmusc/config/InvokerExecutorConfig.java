@@ -0,0 +1,57 @@
+package com.mpmusc.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@Slf4j
+public class InvokerExecutorConfig {
+
+    public static final String MODE_PLATFORM = "platform";
+    public static final String MODE_VIRTUAL = "virtual";
+
+    // platform | virtual (virtual threads need Java 21; older runtimes fall back to platform threads)
+    @Value("${invoker.execution.mode:platform}")
+    private String mode;
+
+    /**
+     * Shared, long-lived executor for the work that waits on invocations: the scheduler and benchmark endpoints,
+     * which run for up to ten minutes, and starting queued invocations. With virtual threads a waiting task costs
+     * no platform thread; with platform threads the pool grows with the number of running endpoints.
+     */
+    @Primary
+    @Bean(name = "invokerExecutor", destroyMethod = "shutdown")
+    public ExecutorService invokerExecutor() {
+        if (MODE_VIRTUAL.equalsIgnoreCase(mode)) {
+            try {
+                // looked up reflectively: the module still compiles for Java 11
+                ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                log.info("Invocation tasks run on virtual threads");
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads need Java 21, running invocation tasks on platform threads");
+            }
+        } else if (!MODE_PLATFORM.equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("Unknown invoker.execution.mode: " + mode);
+        }
+        return Executors.newCachedThreadPool(daemonThreads("invoker-"));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threads = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
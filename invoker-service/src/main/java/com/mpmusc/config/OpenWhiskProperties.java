@@ -18,5 +18,6 @@ public class OpenWhiskProperties {
     private String region;
     private BigDecimal estimatedCost;
     private Integer concurrency;
+    private HttpClientSettings http = new HttpClientSettings();
 
 }
@@ -7,6 +7,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 @RestController
 @RequestMapping("/api")
@@ -15,6 +17,8 @@ public class GenderController {
 
     //    private final Map<String, FunctionInvoker> invokers;
     private final InvocationService service;
+    // invokerExecutor: the invoking endpoints run for up to ten minutes and must not hold a Tomcat thread
+    private final ExecutorService invokerExecutor;
 
 //    @Autowired
 //    public GenderController(Map<String, FunctionInvoker> invokers) {
@@ -38,28 +42,52 @@ public class GenderController {
 //    }
 
     @GetMapping("/analyze")
-    public ResponseEntity<?> analyze(
+    public CompletableFuture<ResponseEntity<?>> analyze(
             @RequestParam(required = false) String provider,
             @RequestParam(defaultValue = "1") int count) {
-        List<String> result = service.analyze(provider, count);
-        return ResponseEntity.ok(result);
+        return CompletableFuture.supplyAsync(() -> {
+            List<String> result = service.analyze(provider, count);
+            return ResponseEntity.ok(result);
+        }, invokerExecutor);
     }
 
     @GetMapping("/schedule")
-    public ResponseEntity<?> schedule(@RequestParam String scheduleType) {
-        return ResponseEntity.ok(service.schedule(scheduleType));
+    public CompletableFuture<ResponseEntity<?>> schedule(@RequestParam String scheduleType) {
+        return CompletableFuture.supplyAsync(() -> ResponseEntity.ok(service.schedule(scheduleType)), invokerExecutor);
+    }
+
+    @GetMapping("/coldStarts")
+    public ResponseEntity<?> coldStarts(@RequestParam(defaultValue = "24") int hours) {
+        return ResponseEntity.ok(service.coldStartStats(hours));
+    }
+
+    @GetMapping("/latencyStats")
+    public ResponseEntity<?> latencyStats() {
+        return ResponseEntity.ok(service.latencyStats());
+    }
+
+    @GetMapping("/performanceModel")
+    public ResponseEntity<?> performanceModel(@RequestParam(defaultValue = "false") boolean refresh) {
+        return ResponseEntity.ok(service.performanceModel(refresh));
+    }
+
+    @GetMapping("/metricWriter")
+    public ResponseEntity<?> metricWriter() {
+        return ResponseEntity.ok(service.metricWriterStats());
     }
 
     @GetMapping("/graphSingleFunctionRequest")
-    public ResponseEntity<?> graphSingleFunctionRequest() {
-        return ResponseEntity.ok(service.benchmarkProviders_singleFunctionRequest());
+    public CompletableFuture<ResponseEntity<?>> graphSingleFunctionRequest() {
+        return CompletableFuture.supplyAsync(
+                () -> ResponseEntity.ok(service.benchmarkProviders_singleFunctionRequest()), invokerExecutor);
     }
 
     @GetMapping("/graphParallelFunctionRequests")
-    public ResponseEntity<?> graphParallelFunctionRequests(
+    public CompletableFuture<ResponseEntity<?>> graphParallelFunctionRequests(
             @RequestParam String provider,
             @RequestParam(defaultValue = "3") int count) {
-        return ResponseEntity.ok(service.benchmarkProviders_parallelFunctionRequests(provider,count));
+        return CompletableFuture.supplyAsync(
+                () -> ResponseEntity.ok(service.benchmarkProviders_parallelFunctionRequests(provider, count)), invokerExecutor);
     }
 
 //    @PostMapping("/smartSchedule")
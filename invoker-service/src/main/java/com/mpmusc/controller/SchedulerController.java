@@ -1,15 +1,19 @@
 package com.mpmusc.controller;
 
+import com.mpmusc.dto.ScatterGatherResult;
 import com.mpmusc.dto.ScheduleResult;
 import com.mpmusc.invoker.FunctionInvoker;
 import com.mpmusc.service.SmartSchedulerService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 @RestController
 @RequestMapping("/api")
@@ -18,11 +22,15 @@ public class SchedulerController {
     private final SmartSchedulerService schedulerService;
     // You must provide the map of provider invokers (wired in your config)
     private final Map<String, FunctionInvoker> invokers;
+    // schedules wait for all their invocations; they run here instead of on a Tomcat thread
+    private final ExecutorService invokerExecutor;
 
     public SchedulerController(SmartSchedulerService schedulerService,
-                               Map<String, FunctionInvoker> invokers) {
+                               Map<String, FunctionInvoker> invokers,
+                               ExecutorService invokerExecutor) {
         this.schedulerService = schedulerService;
         this.invokers = invokers;
+        this.invokerExecutor = invokerExecutor;
     }
 
 //    @PostMapping("/smartSchedule")
@@ -32,10 +40,29 @@ public class SchedulerController {
 //    }
 
     @PostMapping("/smartSchedule")
-    public ResponseEntity<ScheduleResult> smartSchedule(@RequestParam(defaultValue = "1") int concurrency) {
-        // invokers map is injected as before
-        ScheduleResult result = schedulerService.computeAndExecute(concurrency, invokers, "fake_employees_100k.csv");
-        return ResponseEntity.ok(result);
+    public CompletableFuture<ResponseEntity<ScheduleResult>> smartSchedule(
+            @RequestParam(defaultValue = "1") int concurrency,
+            @RequestParam(required = false) String objective) {
+        // invokers map is injected as before; objective: median | p95 | expected (default invoker.scheduler.objective)
+        return CompletableFuture.supplyAsync(() -> {
+            ScheduleResult result = schedulerService.computeAndExecute(concurrency, invokers, "fake_employees_100k.csv", objective);
+            return ResponseEntity.ok(result);
+        }, invokerExecutor);
+    }
+
+    @GetMapping("/planTables")
+    public ResponseEntity<?> planTables() {
+        return ResponseEntity.ok(schedulerService.planTables());
+    }
+
+    @PostMapping("/scatterGather")
+    public CompletableFuture<ResponseEntity<ScatterGatherResult>> scatterGather(
+            @RequestParam(defaultValue = "1") int shards,
+            @RequestParam(defaultValue = "fake_employees_100k.csv") String filename) {
+        return CompletableFuture.supplyAsync(() -> {
+            ScatterGatherResult result = schedulerService.scatterGather(shards, invokers, filename);
+            return ResponseEntity.ok(result);
+        }, invokerExecutor);
     }
 }
 
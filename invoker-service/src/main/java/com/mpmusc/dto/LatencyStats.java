@@ -0,0 +1,23 @@
+package com.mpmusc.dto;
+
+import lombok.Data;
+
+/**
+ * Invocations of one provider (those sent to it {@code tasks} at a time, or all when tasks is null) within the
+ * rolling window. Latencies are RTTs of successful invocations; percentiles are accurate to about 3%.
+ */
+@Data
+public class LatencyStats {
+    private String provider;
+    private Integer tasks;
+    private long windowSeconds;
+
+    private long count;       // all invocations, failed ones included
+    private long errorCount;
+    private double errorRate;
+    private double meanRttMs; // Double.MAX_VALUE when nothing succeeded
+    private long p50Ms;
+    private long p95Ms;
+    private long p99Ms;
+    private double meanCost;
+}
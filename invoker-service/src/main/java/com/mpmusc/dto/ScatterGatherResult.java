@@ -0,0 +1,41 @@
+package com.mpmusc.dto;
+
+import com.mpmusc.core.GenderDistributionResult;
+
+import java.util.List;
+import java.util.Map;
+
+
+public class ScatterGatherResult {
+    private int shardCount;
+    // shards planned per provider, and the shard indexes each provider analyzed
+    private Map<String, Integer> allocation;
+    private Map<String, List<Integer>> shardAssignments;
+    private Double estimatedCompletionTimeMs;
+
+    private List<Integer> failedShards;          // shards without a usable partial result
+    private GenderDistributionResult result;     // merged result, null when a shard failed
+    private Double actualCompletionTimeMs;       // wall clock from fan-out to merge (ms)
+
+    // --- getters / setters ---
+    public int getShardCount() { return shardCount; }
+    public void setShardCount(int shardCount) { this.shardCount = shardCount; }
+
+    public Map<String, Integer> getAllocation() { return allocation; }
+    public void setAllocation(Map<String, Integer> allocation) { this.allocation = allocation; }
+
+    public Map<String, List<Integer>> getShardAssignments() { return shardAssignments; }
+    public void setShardAssignments(Map<String, List<Integer>> shardAssignments) { this.shardAssignments = shardAssignments; }
+
+    public Double getEstimatedCompletionTimeMs() { return estimatedCompletionTimeMs; }
+    public void setEstimatedCompletionTimeMs(Double estimatedCompletionTimeMs) { this.estimatedCompletionTimeMs = estimatedCompletionTimeMs; }
+
+    public List<Integer> getFailedShards() { return failedShards; }
+    public void setFailedShards(List<Integer> failedShards) { this.failedShards = failedShards; }
+
+    public GenderDistributionResult getResult() { return result; }
+    public void setResult(GenderDistributionResult result) { this.result = result; }
+
+    public Double getActualCompletionTimeMs() { return actualCompletionTimeMs; }
+    public void setActualCompletionTimeMs(Double actualCompletionTimeMs) { this.actualCompletionTimeMs = actualCompletionTimeMs; }
+}
@@ -1,31 +1,64 @@
 package com.mpmusc.dto;
 
+import java.util.List;
 import java.util.Map;
 
 
 public class ScheduleResult {
     // allocation planned by the optimizer
     private Map<String, Integer> allocation;
+    private String planObjective;                          // median | p95 | expected
+    private Long planTableVersion;                         // performance model version the plan table was built from
+    private Long planTableAgeMs;                           // age of that plan table when the allocation was looked up
     // estimated times from median table (for allocated counts)
     private Map<String, Double> providerEstimatedTimesMs;
+    // 95% interval [lower, upper] of each provider's estimate
+    private Map<String, List<Double>> providerEstimateIntervalsMs;
     private Double estimatedCompletionTimeMs;
+    // mean, p50, p95, p99 of the makespan under the model's RTT distributions
+    private Map<String, Double> predictedMakespanMs;
+    // p50, p95, p99 of one invocation's RTT per provider at its allocated task count
+    private Map<String, Map<String, Double>> providerPredictedRttMs;
+    private Double decisionTimeMs;                         // time spent choosing the allocation (ms)
 
     // actual observed results after executing the allocation
     private Map<String, Double> providerActualAvgRttMs;    // average of successful rtts per provider (0 if none)
     private Map<String, Integer> providerSuccessCount;     // number of successful invocations per provider
     private Map<String, Integer> providerFailureCount;     // number of failed invocations per provider
+    private Map<String, Map<String, Double>> providerActualRttMs; // p50, p95, p99 of successful rtts per provider
     private Double actualCompletionTimeMs;                 // measured wall-clock makespan (ms)
 
     // --- getters / setters ---
     public Map<String, Integer> getAllocation() { return allocation; }
     public void setAllocation(Map<String, Integer> allocation) { this.allocation = allocation; }
 
+    public String getPlanObjective() { return planObjective; }
+    public void setPlanObjective(String planObjective) { this.planObjective = planObjective; }
+
+    public Long getPlanTableVersion() { return planTableVersion; }
+    public void setPlanTableVersion(Long planTableVersion) { this.planTableVersion = planTableVersion; }
+
+    public Long getPlanTableAgeMs() { return planTableAgeMs; }
+    public void setPlanTableAgeMs(Long planTableAgeMs) { this.planTableAgeMs = planTableAgeMs; }
+
     public Map<String, Double> getProviderEstimatedTimesMs() { return providerEstimatedTimesMs; }
     public void setProviderEstimatedTimesMs(Map<String, Double> providerEstimatedTimesMs) { this.providerEstimatedTimesMs = providerEstimatedTimesMs; }
 
+    public Map<String, List<Double>> getProviderEstimateIntervalsMs() { return providerEstimateIntervalsMs; }
+    public void setProviderEstimateIntervalsMs(Map<String, List<Double>> providerEstimateIntervalsMs) { this.providerEstimateIntervalsMs = providerEstimateIntervalsMs; }
+
     public Double getEstimatedCompletionTimeMs() { return estimatedCompletionTimeMs; }
     public void setEstimatedCompletionTimeMs(Double estimatedCompletionTimeMs) { this.estimatedCompletionTimeMs = estimatedCompletionTimeMs; }
 
+    public Map<String, Double> getPredictedMakespanMs() { return predictedMakespanMs; }
+    public void setPredictedMakespanMs(Map<String, Double> predictedMakespanMs) { this.predictedMakespanMs = predictedMakespanMs; }
+
+    public Map<String, Map<String, Double>> getProviderPredictedRttMs() { return providerPredictedRttMs; }
+    public void setProviderPredictedRttMs(Map<String, Map<String, Double>> providerPredictedRttMs) { this.providerPredictedRttMs = providerPredictedRttMs; }
+
+    public Double getDecisionTimeMs() { return decisionTimeMs; }
+    public void setDecisionTimeMs(Double decisionTimeMs) { this.decisionTimeMs = decisionTimeMs; }
+
     public Map<String, Double> getProviderActualAvgRttMs() { return providerActualAvgRttMs; }
     public void setProviderActualAvgRttMs(Map<String, Double> providerActualAvgRttMs) { this.providerActualAvgRttMs = providerActualAvgRttMs; }
 
@@ -35,6 +68,9 @@ public class ScheduleResult {
     public Map<String, Integer> getProviderFailureCount() { return providerFailureCount; }
     public void setProviderFailureCount(Map<String, Integer> providerFailureCount) { this.providerFailureCount = providerFailureCount; }
 
+    public Map<String, Map<String, Double>> getProviderActualRttMs() { return providerActualRttMs; }
+    public void setProviderActualRttMs(Map<String, Map<String, Double>> providerActualRttMs) { this.providerActualRttMs = providerActualRttMs; }
+
     public Double getActualCompletionTimeMs() { return actualCompletionTimeMs; }
     public void setActualCompletionTimeMs(Double actualCompletionTimeMs) { this.actualCompletionTimeMs = actualCompletionTimeMs; }
 }
\ No newline at end of file
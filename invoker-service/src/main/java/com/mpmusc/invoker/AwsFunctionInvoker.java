@@ -1,60 +1,89 @@
 package com.mpmusc.invoker;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mpmusc.config.AwsProperties;
-import com.mpmusc.core.GenderDistributionResult;
+import com.mpmusc.config.HttpClientSettings;
+import com.mpmusc.core.GenderDistributionRequest;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.lambda.LambdaClient;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
 import software.amazon.awssdk.services.lambda.model.InvokeRequest;
 import software.amazon.awssdk.services.lambda.model.InvokeResponse;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component("aws")
 @RequiredArgsConstructor
+@Slf4j
 public class AwsFunctionInvoker implements FunctionInvoker {
 
     private final AwsProperties awsProperties;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private LambdaClient lambdaClient;
+    // every Invocations.LOG_SAMPLE_EVERY-th payload is logged at debug level
+    private final AtomicLong responses = new AtomicLong();
+    private LambdaAsyncClient lambdaClient;
 
     @PostConstruct
     public void init() {
-        lambdaClient = LambdaClient.builder()
+        HttpClientSettings http = awsProperties.getHttp();
+        lambdaClient = LambdaAsyncClient.builder()
                 .region(Region.of(awsProperties.getRegion()))
                 .credentialsProvider(StaticCredentialsProvider.create(
                         AwsBasicCredentials.create(
                                 awsProperties.getAccessKey(),
                                 awsProperties.getSecretKey())))
+                // the Netty client allows only 50 concurrent requests by default
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(http.getMaxConnections())
+                        .maxPendingConnectionAcquires(Integer.MAX_VALUE)
+                        .connectionTimeout(Duration.ofSeconds(http.getConnectTimeoutSeconds()))
+                        .connectionMaxIdleTime(Duration.ofSeconds(http.getIdleTimeoutSeconds()))
+                        .tcpKeepAlive(true))
                 .build();
     }
 
+    @PreDestroy
+    public void close() {
+        lambdaClient.close();
+    }
+
     @Override
-    public ProviderResponse invoke(String filename) throws JsonProcessingException {
-        String jsonPayload = "{\"filename\":\"" + filename + "\"}";
+    public CompletableFuture<ProviderResponse> invokeAsync(GenderDistributionRequest analysisRequest) {
+        byte[] jsonPayload;
+        try {
+            jsonPayload = ResponseDecoder.MAPPER.writeValueAsBytes(analysisRequest);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
         InvokeRequest request = InvokeRequest.builder()
                 .functionName(awsProperties.getLambda().getFunctionName())
-                .payload(SdkBytes.fromUtf8String(jsonPayload))
+                .payload(SdkBytes.fromByteArrayUnsafe(jsonPayload))
                 .build();
-        InvokeResponse response = lambdaClient.invoke(request);
-        String jsonResponse = response.payload().asUtf8String();
-
-        ObjectMapper objectMapper = new ObjectMapper();
-        GenderDistributionResult result = objectMapper.readValue(jsonResponse, GenderDistributionResult.class);
-        long executionTimeMs = result.getExecutionTimeMillis();
+        return lambdaClient.invoke(request).thenApply(this::toProviderResponse);
+    }
 
+    private ProviderResponse toProviderResponse(InvokeResponse response) {
         boolean success = response.statusCode() >= 200 && response.statusCode() < 300;
 
-        System.out.println("[AWS] " + jsonResponse);
-        return new ProviderResponse(jsonResponse, success, success ? null : jsonResponse, executionTimeMs);
+        byte[] body = response.payload().asByteArrayUnsafe();
+        ProviderResponse providerResponse = ProviderResponse.decoded(body, success,
+                success ? null : new String(body, StandardCharsets.UTF_8));
+        if (log.isDebugEnabled() && Invocations.sampled(responses)) {
+            log.debug("[AWS] {}", providerResponse.getPayload());
+        }
+        return providerResponse;
 
 
 //        String jsonPayload = "{\"filename\":\"" + filename + "\"}";
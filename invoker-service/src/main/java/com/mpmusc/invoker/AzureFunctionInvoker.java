@@ -1,53 +1,76 @@
 package com.mpmusc.invoker;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mpmusc.config.AzureProperties;
-import com.mpmusc.core.GenderDistributionResult;
+import com.mpmusc.core.GenderDistributionRequest;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.ContentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component("azure")
 @RequiredArgsConstructor
+@Slf4j
 public class AzureFunctionInvoker implements FunctionInvoker {
 
     private final AzureProperties azureProperties;
+    // every Invocations.LOG_SAMPLE_EVERY-th payload is logged at debug level
+    private final AtomicLong responses = new AtomicLong();
 
     @Value("${azure.function.url}")
     private String functionUrl; // e.g. "https://mpmusc-azure.azurewebsites.net/api/genderdistribution"
 
-    @Override
-    public ProviderResponse invoke(String filename) throws JsonProcessingException {
-        RestTemplate rest = new RestTemplate();
-        // Set up headers
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        // Create JSON body
-        Map<String, String> body = new HashMap<>();
-        body.put("filename", filename); // adjust according to your GenderDistributionRequest
-
-        HttpEntity<Map<String, String>> request = new HttpEntity<>(body, headers);
-
-        // Call POST
-        String jsonResponse = rest.postForObject(functionUrl, request, String.class);
-//        boolean success = response.statusCode() >= 200 && response.statusCode() < 300;
-
-        ObjectMapper objectMapper = new ObjectMapper();
-        GenderDistributionResult result = objectMapper.readValue(jsonResponse, GenderDistributionResult.class);
-        long executionTimeMs = result.getExecutionTimeMillis();
+    @Autowired
+    @Qualifier("azureHttpClient")
+    private CloseableHttpAsyncClient httpClient;
+
+    /**
+     * Connects the pool before the first invocation, so no measured RTT includes a TCP or TLS handshake.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        int connections = azureProperties.getHttp().prewarmConnections(azureProperties.getConcurrency());
+        if (connections <= 0) return;
+        Invocations.prewarm(httpClient, functionUrl, connections).whenComplete((connected, ex) -> {
+            if (ex != null) log.warn("Could not prewarm Azure connections: {}", ex.getMessage());
+            else log.info("Prewarmed Azure connections: {} of {} requests answered", connected, connections);
+        });
+    }
 
-//        System.out.println("[AZURE] " + jsonResponse);
-        return new ProviderResponse(jsonResponse, true, null, executionTimeMs);
+    @Override
+    public CompletableFuture<ProviderResponse> invokeAsync(GenderDistributionRequest analysisRequest) {
+        // Create JSON body from the GenderDistributionRequest, leaving out unset fields
+        byte[] body;
+        try {
+            body = ResponseDecoder.MAPPER.writeValueAsBytes(analysisRequest);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        SimpleHttpRequest request = SimpleRequestBuilder.post(functionUrl)
+                .setBody(body, ContentType.APPLICATION_JSON)
+                .build();
+
+        // Call POST; 4xx/5xx complete the future exceptionally, as RestTemplate would have thrown
+        return Invocations.execute(httpClient, request).thenApply(response -> {
+            ProviderResponse providerResponse = ProviderResponse.decoded(Invocations.bodyOrThrow(response), true, null);
+            if (log.isDebugEnabled() && Invocations.sampled(responses)) {
+                log.debug("[AZURE] {}", providerResponse.getPayload());
+            }
+            return providerResponse;
+        });
     }
 
     @Override
@@ -1,11 +1,37 @@
 package com.mpmusc.invoker;
 
+import com.mpmusc.core.GenderDistributionRequest;
+
 import java.math.BigDecimal;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public interface FunctionInvoker {
     /** Invoke the analysis function for the given input filename. */
-    ProviderResponse invoke(String filename) throws Exception;
+    default ProviderResponse invoke(String filename) throws Exception {
+        return invoke(new GenderDistributionRequest(filename));
+    }
+
+    /** Invoke the analysis function with a full request (e.g. a shard of the file), waiting for the response. */
+    default ProviderResponse invoke(GenderDistributionRequest request) throws Exception {
+        try {
+            return invokeAsync(request).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /** Invoke the analysis function for the given input filename without blocking. */
+    default CompletableFuture<ProviderResponse> invokeAsync(String filename) {
+        return invokeAsync(new GenderDistributionRequest(filename));
+    }
+
+    /**
+     * Invoke the analysis function without blocking the calling thread. The future completes on the client's
+     * I/O thread, so blocking follow-up work (e.g. saving metrics) belongs on an executor of its own.
+     */
+    CompletableFuture<ProviderResponse> invokeAsync(GenderDistributionRequest request);
 
     /**
      * Invoke the analysis function.
@@ -0,0 +1,107 @@
+package com.mpmusc.invoker;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Helpers shared by the asynchronous invokers.
+ */
+final class Invocations {
+
+    static final int LOG_SAMPLE_EVERY = 100;
+
+    private Invocations() {
+    }
+
+    /**
+     * Sends {@code request} without blocking; cancelling the returned future cancels the exchange.
+     */
+    static CompletableFuture<SimpleHttpResponse> execute(CloseableHttpAsyncClient client, SimpleHttpRequest request) {
+        CompletableFuture<SimpleHttpResponse> future = new CompletableFuture<>();
+        Future<SimpleHttpResponse> exchange = client.execute(request, new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                future.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+        future.whenComplete((response, ex) -> {
+            if (future.isCancelled()) exchange.cancel(true);
+        });
+        return future;
+    }
+
+    /**
+     * Opens up to {@code connections} pooled connections to the origin of {@code url} with concurrent HEAD
+     * requests to its root, which do not run the function. Any response counts: the connection and its TLS
+     * session are established and stay in the pool. Completes with the number of requests that got a response.
+     */
+    static CompletableFuture<Long> prewarm(CloseableHttpAsyncClient client, String url, int connections) {
+        URI uri = URI.create(url);
+        String origin = uri.getScheme() + "://" + uri.getRawAuthority() + "/";
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[Math.max(0, connections)];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = execute(client, SimpleRequestBuilder.head(origin).build())
+                    .handle((response, ex) -> ex == null);
+        }
+        return CompletableFuture.allOf(requests).thenApply(v -> Arrays.stream(requests)
+                .filter(request -> Boolean.TRUE.equals(request.join()))
+                .count());
+    }
+
+    /**
+     * The response body, or the exception RestTemplate would have thrown for a 4xx/5xx status.
+     */
+    static byte[] bodyOrThrow(SimpleHttpResponse response) {
+        byte[] body = response.getBodyBytes();
+        HttpStatusCode status = HttpStatusCode.valueOf(response.getCode());
+        if (status.is4xxClientError()) {
+            throw HttpClientErrorException.create(status, response.getReasonPhrase(), HttpHeaders.EMPTY,
+                    body, StandardCharsets.UTF_8);
+        }
+        if (status.is5xxServerError()) {
+            throw HttpServerErrorException.create(status, response.getReasonPhrase(), HttpHeaders.EMPTY,
+                    body, StandardCharsets.UTF_8);
+        }
+        return body != null ? body : new byte[0];
+    }
+
+    /**
+     * True for every {@value #LOG_SAMPLE_EVERY}th call on {@code counter}: payloads are logged for a sample of
+     * the responses only, so debug logging does not copy every payload at high concurrency.
+     */
+    static boolean sampled(AtomicLong counter) {
+        return counter.getAndIncrement() % LOG_SAMPLE_EVERY == 0;
+    }
+
+    /**
+     * The exception a future failed with, without the CompletionException wrapper of dependent stages.
+     */
+    static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+}
@@ -1,34 +1,37 @@
 package com.mpmusc.invoker;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mpmusc.config.OpenWhiskProperties;
-import com.mpmusc.core.GenderDistributionResult;
+import com.mpmusc.core.GenderDistributionRequest;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component("openwhisk")
 @RequiredArgsConstructor
+@Slf4j
 public class OpenWhiskFunctionInvoker implements FunctionInvoker {
 
     private final OpenWhiskProperties openWhiskProperties;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // every Invocations.LOG_SAMPLE_EVERY-th payload is logged at debug level
+    private final AtomicLong responses = new AtomicLong();
 
     @Value("${openwhisk.api.host}")
     private String apiHost;
@@ -40,11 +43,24 @@ public class OpenWhiskFunctionInvoker implements FunctionInvoker {
     private String authKey;
 
     @Autowired
-    @Qualifier("trustAllRestTemplate")
-    private RestTemplate restTemplate;
+    @Qualifier("openWhiskHttpClient")
+    private CloseableHttpAsyncClient httpClient;
+
+    /**
+     * Connects the pool before the first invocation, so no measured RTT includes a TCP or TLS handshake.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        int connections = openWhiskProperties.getHttp().prewarmConnections(openWhiskProperties.getConcurrency());
+        if (connections <= 0) return;
+        Invocations.prewarm(httpClient, apiHost, connections).whenComplete((connected, ex) -> {
+            if (ex != null) log.warn("Could not prewarm OpenWhisk connections: {}", ex.getMessage());
+            else log.info("Prewarmed OpenWhisk connections: {} of {} requests answered", connected, connections);
+        });
+    }
 
     @Override
-    public ProviderResponse invoke(String filename) throws JsonProcessingException {
+    public CompletableFuture<ProviderResponse> invokeAsync(GenderDistributionRequest analysisRequest) {
         String url = String.format(
                 "%s/api/v1/namespaces/%s/actions/%s?blocking=true&result=true",
                 apiHost, namespace, actionName);
@@ -53,45 +69,46 @@ public class OpenWhiskFunctionInvoker implements FunctionInvoker {
         String encodedAuth = Base64.getEncoder()
                 .encodeToString(authKey.getBytes(StandardCharsets.UTF_8));
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Basic " + encodedAuth);
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         // Construct JSON body using ObjectMapper
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("filename", filename);
-        String jsonPayload = objectMapper.writeValueAsString(requestBody);
-
-        HttpEntity<String> entity = new HttpEntity<>(jsonPayload, headers);
-
+        byte[] jsonPayload;
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
-            String jsonResponse = response.getBody();
-
-            GenderDistributionResult result = objectMapper.readValue(jsonResponse, GenderDistributionResult.class);
-            long executionTimeMs = result.getExecutionTimeMillis();
-            System.out.println("[OPENWHISK] " + jsonResponse);
-            return new ProviderResponse(jsonResponse, true, null, executionTimeMs);
+            jsonPayload = ResponseDecoder.MAPPER.writeValueAsBytes(analysisRequest);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-        } catch (HttpClientErrorException e) {
-            // OpenWhisk error: show OpenWhisk's response
-            System.out.println("[OPENWHISK] " + e.getMessage());
-            return new ProviderResponse(
-                    String.format("OpenWhisk error (%d): %s", e.getRawStatusCode(), e.getResponseBodyAsString()),
-                    false,
-                    e.getMessage(),
-                    0
-            );
-        } catch (Exception e) {
+        SimpleHttpRequest request = SimpleRequestBuilder.post(url)
+                .addHeader(HttpHeaders.AUTHORIZATION, "Basic " + encodedAuth)
+                .setBody(jsonPayload, ContentType.APPLICATION_JSON)
+                .build();
+
+        return Invocations.execute(httpClient, request).thenApply(response -> {
+            ProviderResponse providerResponse = ProviderResponse.decoded(Invocations.bodyOrThrow(response), true, null);
+            if (log.isDebugEnabled() && Invocations.sampled(responses)) {
+                log.debug("[OPENWHISK] {}", providerResponse.getPayload());
+            }
+            return providerResponse;
+        }).exceptionally(ex -> {
+            Throwable e = Invocations.unwrap(ex);
+            log.warn("[OPENWHISK] {}", e.getMessage());
+            if (e instanceof HttpClientErrorException) {
+                // OpenWhisk error: show OpenWhisk's response
+                HttpClientErrorException clientError = (HttpClientErrorException) e;
+                return new ProviderResponse(
+                        String.format("OpenWhisk error (%d): %s", clientError.getStatusCode().value(), clientError.getResponseBodyAsString()),
+                        false,
+                        e.getMessage(),
+                        0
+                );
+            }
             // Other unknown error
-            System.out.println("[OPENWHISK] " + e.getMessage());
             return new ProviderResponse(
                     "Unexpected error invoking OpenWhisk: " + e.getMessage(),
                     false,
                     e.getMessage(),
                     0
             );
-        }
+        });
     }
 
     @Override
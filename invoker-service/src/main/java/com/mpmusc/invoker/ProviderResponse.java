@@ -1,14 +1,25 @@
 package com.mpmusc.invoker;
 
+import com.mpmusc.core.GenderDistributionResult;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
 
 @Data
 public class ProviderResponse {
 
-    private final String payload;
+    private String payload; // decoded from body on first use
     private final boolean success;
     private final String errorMsg;
     private long executionTimeMs;
+    private GenderDistributionResult summary; // scalar fields of the payload, null when the invocation failed
+    private GenderDistributionResult result; // parsed payload, bound from body on first use
+    @Getter(AccessLevel.NONE) @ToString.Exclude @EqualsAndHashCode.Exclude
+    private byte[] body;
 //    private final BigDecimal cost;
 //    private final String region;
 
@@ -20,6 +31,48 @@ public class ProviderResponse {
 //        this.cost = cost;
 //        this.region = region;
     }
+
+    /**
+     * A response carrying a function result. Only its summary is parsed here; the payload text and the full
+     * result are decoded from {@code body} when they are asked for.
+     */
+    static ProviderResponse decoded(byte[] body, boolean success, String errorMsg) {
+        GenderDistributionResult summary = ResponseDecoder.decodeSummary(body);
+        ProviderResponse response = new ProviderResponse(null, success, errorMsg, summary.getExecutionTimeMillis());
+        response.body = body;
+        response.summary = summary;
+        return response;
+    }
+
+    public String getPayload() {
+        if (payload == null && body != null) {
+            payload = new String(body, StandardCharsets.UTF_8);
+        }
+        return payload;
+    }
+
+    public GenderDistributionResult getResult() {
+        if (result == null && body != null) {
+            result = ResponseDecoder.bind(body);
+        }
+        return result;
+    }
+
+    /**
+     * What the function reported about its run (row count, phases, container), without the distribution.
+     */
+    public GenderDistributionResult getSummary() {
+        return summary != null ? summary : result;
+    }
+
+    /**
+     * Whether the function answered from its result cache: then the RTT is mostly network and says nothing about
+     * how long an analysis takes.
+     */
+    public boolean isCacheHit() {
+        GenderDistributionResult reported = getSummary();
+        return reported != null && Boolean.TRUE.equals(reported.getCacheHit());
+    }
 //    public String getPayload() { return payload; }
 //    public boolean isSuccess() { return success; }
 //    public BigDecimal getCost() { return cost; }
@@ -0,0 +1,112 @@
+package com.mpmusc.invoker;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mpmusc.core.GenderDistributionResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Decodes function responses for all invokers. On the I/O thread only the fields the scheduler and the metrics
+ * read are stream-parsed; the distribution maps are skipped over and bound when {@link ProviderResponse#getResult()}
+ * is first called.
+ */
+@Slf4j
+final class ResponseDecoder {
+
+    // thread-safe once configured; also writes the requests, leaving out unset fields
+    static final ObjectMapper MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private ResponseDecoder() {
+    }
+
+    /**
+     * The scalar fields and phase timings of a GenderDistributionResult. Unknown fields fail the decoding, as
+     * binding would have, so a provider's error document is not taken for a result.
+     */
+    static GenderDistributionResult decodeSummary(byte[] json) {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a GenderDistributionResult object");
+            }
+            GenderDistributionResult summary = new GenderDistributionResult();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                boolean isNull = value == JsonToken.VALUE_NULL;
+                switch (field) {
+                    case "distribution":
+                    case "aggregations":
+                    case "counts":
+                        parser.skipChildren();
+                        break;
+                    case "executionTimeMillis":
+                        summary.setExecutionTimeMillis(isNull ? 0L : parser.getValueAsLong());
+                        break;
+                    case "rowCount":
+                        summary.setRowCount(isNull ? null : parser.getValueAsLong());
+                        break;
+                    case "phaseNanos":
+                        summary.setPhaseNanos(isNull ? null : readLongs(parser));
+                        break;
+                    case "cacheHit":
+                        summary.setCacheHit(isNull ? null : parser.getValueAsBoolean());
+                        break;
+                    case "containerId":
+                        summary.setContainerId(parser.getValueAsString());
+                        break;
+                    case "invocationSequence":
+                        summary.setInvocationSequence(isNull ? null : parser.getValueAsLong());
+                        break;
+                    case "coldStart":
+                        summary.setColdStart(isNull ? null : parser.getValueAsBoolean());
+                        break;
+                    case "jvmInitMillis":
+                        summary.setJvmInitMillis(isNull ? null : parser.getValueAsLong());
+                        break;
+                    case "error":
+                        summary.setError(parser.getValueAsString());
+                        break;
+                    default:
+                        throw new JsonParseException(parser, "Unrecognized field \"" + field + "\" in function response");
+                }
+            }
+            return summary;
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * The complete GenderDistributionResult, or null (logged) if the response does not bind.
+     */
+    static GenderDistributionResult bind(byte[] json) {
+        try {
+            return MAPPER.readValue(json, GenderDistributionResult.class);
+        } catch (IOException e) {
+            log.warn("Could not bind function response: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<String, Long> readLongs(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an object of numbers");
+        }
+        Map<String, Long> values = new HashMap<>(4);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            values.put(name, parser.getValueAsLong());
+        }
+        return values;
+    }
+}
@@ -1,16 +1,21 @@
 package com.mpmusc.model;
 
+import com.mpmusc.core.GenderDistributionResult;
 import jakarta.persistence.*;
 import lombok.Data;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @Entity
 @Table(name = "provider_metrics_2")
 public class ProviderMetric {
-    @Id @GeneratedValue
+    // allocated in blocks of 50, pooled-lo; MetricWriter draws ids from the same sequence
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "provider_metrics_2_seq")
+    @SequenceGenerator(name = "provider_metrics_2_seq", sequenceName = "provider_metrics_2_seq", allocationSize = 50)
     private Long id;
 
     private String provider;
@@ -24,9 +29,45 @@ public class ProviderMetric {
     private BigDecimal cost;
     // remaining concurrency
     private Integer concurrency;
+    // invocations of the same plan or batch sent to this provider together; what the scheduler's model is keyed by
+    private Integer tasks;
     private LocalDateTime recordedAt;
+    // rows analyzed and nanoseconds per analysis phase inside the function (GenderDistributionResult.PHASE_*)
+    private Long rowCount;
+    private Long openNanos;
+    private Long scanNanos;
+    private Long finalizeNanos;
+    // serving container (JVM) and its invocation count; coldStart marks the container's first invocation
+    private String containerId;
+    private Long invocationSequence;
+    private Boolean coldStart;
+    private Long jvmInitMillis;
+    // answered from the function's result cache without analyzing; left out of the latency stats and the model
+    private Boolean cacheHit;
 
     // constructors, getters/setters
+
+    /**
+     * Copies what the function reported about its own run; null fields stay null for older deployments.
+     */
+    public void recordFunctionResult(GenderDistributionResult result) {
+        if (result == null) {
+            return;
+        }
+        rowCount = result.getRowCount();
+        Map<String, Long> phases = result.getPhaseNanos();
+        if (phases != null) {
+            openNanos = phases.get(GenderDistributionResult.PHASE_OPEN);
+            scanNanos = phases.get(GenderDistributionResult.PHASE_SCAN);
+            finalizeNanos = phases.get(GenderDistributionResult.PHASE_FINALIZE);
+        }
+        containerId = result.getContainerId();
+        invocationSequence = result.getInvocationSequence();
+        coldStart = result.getColdStart();
+        jvmInitMillis = result.getJvmInitMillis();
+        cacheHit = result.getCacheHit();
+    }
+
     @PrePersist
     public void prePersist() {
         if (recordedAt == null) {
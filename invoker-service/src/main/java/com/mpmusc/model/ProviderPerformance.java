@@ -14,6 +14,7 @@ public class ProviderPerformance {
 
     private String provider;
 
+    // tasks running on the provider together (ProviderMetric.tasks), not its remaining concurrency
     private Integer concurrency;
 
     @Column(name = "median_time_ms")
@@ -18,4 +18,15 @@ public interface ProviderMetricRepository extends JpaRepository<ProviderMetric,
 
     @Query("SELECT pm FROM ProviderMetric pm WHERE pm.recordedAt >= :since")
     List<ProviderMetric> findSince(@Param("since") LocalDateTime since);
+
+    // provider, concurrency, invocations, cold starts, avg cold RTT, avg warm RTT (rows reporting coldStart only;
+    // the warm average leaves out result cache hits)
+    @Query("SELECT pm.provider, pm.concurrency, COUNT(pm), "
+            + "SUM(CASE WHEN pm.coldStart = true THEN 1 ELSE 0 END), "
+            + "AVG(CASE WHEN pm.coldStart = true THEN pm.totalTimeMs END), "
+            + "AVG(CASE WHEN pm.coldStart = false AND (pm.cacheHit IS NULL OR pm.cacheHit = false) "
+            + "THEN pm.totalTimeMs END) "
+            + "FROM ProviderMetric pm WHERE pm.recordedAt >= :since AND pm.coldStart IS NOT NULL "
+            + "GROUP BY pm.provider, pm.concurrency ORDER BY pm.provider, pm.concurrency")
+    List<Object[]> findColdStartStatsSince(@Param("since") LocalDateTime since);
 }
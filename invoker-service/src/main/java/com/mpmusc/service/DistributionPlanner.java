@@ -0,0 +1,188 @@
+package com.mpmusc.service;
+
+import java.util.Arrays;
+
+/**
+ * Chooses allocations by the distribution of the makespan rather than by medians. {@code dists[i][t]} is the RTT
+ * distribution of one invocation while t tasks run on provider i (null where there is no estimate). With
+ * independent invocations the makespan of an allocation k is the largest of its RTTs, so
+ * P(makespan <= x) = prod_i F_i,k_i(x)^k_i: a provider with a fat tail costs more the more tasks it gets.
+ * <p>
+ * The CDF is evaluated on a log-spaced grid over the distributions' support. At a grid point x the allocation
+ * maximizing sum_i k_i * log F_i,k_i(x) is an exact max-plus DP over providers and tasks: O(n * C^2) per point,
+ * since every task count c tries every share t <= c for each provider, and it solves every task count up to C at
+ * once. For a quantile objective (p95) the optimum of C' tasks is the DP's allocation at the smallest x where it
+ * reaches the quantile, so one linear ascending sweep over the L grid points plans all task counts, O(n * C^2 * L)
+ * in the worst case (the sweep stops once every count is resolved). The expected makespan is not decomposable that way: it starts from the median-makespan allocation and
+ * moves single tasks between providers while the expectation improves.
+ */
+final class DistributionPlanner {
+
+    static final String OBJECTIVE_MEDIAN = "median";
+    static final String OBJECTIVE_P95 = "p95";
+    static final String OBJECTIVE_EXPECTED = "expected";
+
+    private static final int GRID_POINTS = 512;
+    private static final int MAX_LOCAL_SEARCH_ROUNDS = 1000;
+
+    private final EmpiricalDistribution[][] dists;
+    private final int total;
+    private final double[] grid;
+
+    DistributionPlanner(EmpiricalDistribution[][] dists, int total) {
+        this.dists = dists;
+        this.total = total;
+        double lo = Double.MAX_VALUE, hi = 0;
+        for (EmpiricalDistribution[] provider : dists) {
+            for (EmpiricalDistribution d : provider) {
+                if (d == null) continue;
+                lo = Math.min(lo, d.min());
+                hi = Math.max(hi, d.max());
+            }
+        }
+        lo = Math.max(1.0, Math.min(lo, hi));
+        hi = Math.max(hi, lo);
+        grid = new double[GRID_POINTS];
+        double ratio = Math.pow(hi / lo, 1.0 / (GRID_POINTS - 1));
+        for (int g = 0; g < GRID_POINTS; g++) grid[g] = lo * Math.pow(ratio, g);
+        grid[GRID_POINTS - 1] = hi;
+    }
+
+    /**
+     * For every task count c from 0 to the total, the allocation of c tasks minimizing {@code objective} (p95 or
+     * expected makespan); null where no allocation of c tasks has an estimate for every provider it uses.
+     */
+    int[][] planAll(String objective) {
+        if (OBJECTIVE_EXPECTED.equals(objective)) {
+            int[][] plans = quantilePlans(0.5);
+            for (int c = 1; c <= total; c++) {
+                if (plans[c] != null) plans[c] = minimizeExpected(plans[c]);
+            }
+            return plans;
+        }
+        return quantilePlans(0.95);
+    }
+
+    /**
+     * The predicted makespan distribution of {@code allocation}: {mean, p50, p95, p99} in ms.
+     */
+    double[] makespan(int[] allocation) {
+        double[] cdf = makespanCdf(allocation);
+        return new double[]{expected(cdf), quantile(cdf, 0.50), quantile(cdf, 0.95), quantile(cdf, 0.99)};
+    }
+
+    private int[][] quantilePlans(double q) {
+        double target = Math.log(q);
+        int n = dists.length;
+        int[][] plans = new int[total + 1][];
+        plans[0] = new int[n];
+        int unresolved = total;
+        int[][] choice = new int[n][total + 1];
+        for (int g = 0; g < GRID_POINTS && unresolved > 0; g++) {
+            double[] best = bestAt(g, choice);
+            for (int c = 1; c <= total; c++) {
+                if (plans[c] != null || best[c] < target) continue;
+                int[] allocation = new int[n];
+                int remaining = c;
+                for (int i = n - 1; i >= 0; i--) {
+                    allocation[i] = choice[i][remaining];
+                    remaining -= allocation[i];
+                }
+                plans[c] = allocation;
+                unresolved--;
+            }
+        }
+        return plans;
+    }
+
+    /**
+     * For each task count c, max over allocations of c tasks of sum_i k_i * log F_i,k_i(grid[g]); the tasks
+     * provider i takes when providers 0..i share c of them go to {@code choice[i][c]}.
+     */
+    private double[] bestAt(int g, int[][] choice) {
+        int n = dists.length;
+        double x = grid[g];
+        double[] dp = new double[total + 1];
+        Arrays.fill(dp, Double.NEGATIVE_INFINITY);
+        dp[0] = 0.0;
+        for (int i = 0; i < n; i++) {
+            int cap = Math.min(total, dists[i].length - 1);
+            double[] gain = new double[cap + 1];
+            for (int t = 1; t <= cap; t++) gain[t] = logCdf(dists[i][t], x) * t;
+            double[] next = new double[total + 1];
+            Arrays.fill(next, Double.NEGATIVE_INFINITY);
+            for (int c = 0; c <= total; c++) {
+                choice[i][c] = 0;
+                for (int t = 0; t <= Math.min(cap, c); t++) {
+                    double v = dp[c - t] + gain[t];
+                    if (v > next[c]) {
+                        next[c] = v;
+                        choice[i][c] = t;
+                    }
+                }
+            }
+            dp = next;
+        }
+        return dp;
+    }
+
+    private int[] minimizeExpected(int[] allocation) {
+        int[] best = allocation.clone();
+        double bestMean = expected(makespanCdf(best));
+        for (int round = 0; round < MAX_LOCAL_SEARCH_ROUNDS; round++) {
+            int[] improved = null;
+            double improvedMean = bestMean;
+            for (int from = 0; from < best.length; from++) {
+                if (best[from] == 0) continue;
+                for (int to = 0; to < best.length; to++) {
+                    if (to == from || best[to] + 1 >= dists[to].length || dists[to][best[to] + 1] == null) continue;
+                    int[] candidate = best.clone();
+                    candidate[from]--;
+                    candidate[to]++;
+                    if (candidate[from] > 0 && dists[from][candidate[from]] == null) continue;
+                    double mean = expected(makespanCdf(candidate));
+                    if (mean < improvedMean - 1e-9) {
+                        improved = candidate;
+                        improvedMean = mean;
+                    }
+                }
+            }
+            if (improved == null) break;
+            best = improved;
+            bestMean = improvedMean;
+        }
+        return best;
+    }
+
+    private double[] makespanCdf(int[] allocation) {
+        double[] cdf = new double[GRID_POINTS];
+        for (int g = 0; g < GRID_POINTS; g++) {
+            double log = 0.0;
+            for (int i = 0; i < allocation.length && log > Double.NEGATIVE_INFINITY; i++) {
+                if (allocation[i] > 0) log += logCdf(dists[i][allocation[i]], grid[g]) * allocation[i];
+            }
+            cdf[g] = Math.exp(log);
+        }
+        return cdf;
+    }
+
+    private double expected(double[] cdf) {
+        // E[M] = integral of P(M > x) dx; below grid[0] the makespan has no mass
+        double mean = grid[0];
+        for (int g = 1; g < GRID_POINTS; g++) mean += (1.0 - cdf[g]) * (grid[g] - grid[g - 1]);
+        return mean;
+    }
+
+    private double quantile(double[] cdf, double q) {
+        for (int g = 0; g < GRID_POINTS; g++) {
+            if (cdf[g] >= q) return grid[g];
+        }
+        return grid[GRID_POINTS - 1];
+    }
+
+    private static double logCdf(EmpiricalDistribution d, double x) {
+        if (d == null) return Double.NEGATIVE_INFINITY;
+        double p = d.cdf(x);
+        return p > 0 ? Math.log(p) : Double.NEGATIVE_INFINITY;
+    }
+}
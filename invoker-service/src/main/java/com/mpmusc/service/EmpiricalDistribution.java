@@ -0,0 +1,105 @@
+package com.mpmusc.service;
+
+import java.util.Arrays;
+
+/**
+ * An RTT distribution taken from a {@link RollingWindow} histogram: a step CDF over the bins' values, optionally
+ * scaled by a constant factor (a provider's shape moved to the median of another task count). Immutable.
+ */
+final class EmpiricalDistribution {
+
+    private final double[] values; // ascending, unscaled
+    private final double[] cdf;    // P(X <= values[i])
+    private final long samples;
+    private final double scale;
+
+    private EmpiricalDistribution(double[] values, double[] cdf, long samples, double scale) {
+        this.values = values;
+        this.cdf = cdf;
+        this.samples = samples;
+        this.scale = scale;
+    }
+
+    /** The distribution of a {@link RollingWindow#histogram} histogram, or null when it is empty. */
+    static EmpiricalDistribution fromHistogram(long[] bins) {
+        long total = 0;
+        int used = 0;
+        for (long n : bins) {
+            total += n;
+            if (n > 0) used++;
+        }
+        if (total == 0) return null;
+        double[] values = new double[used];
+        double[] cdf = new double[used];
+        long seen = 0;
+        int i = 0;
+        for (int b = 0; b < bins.length; b++) {
+            if (bins[b] == 0) continue;
+            seen += bins[b];
+            values[i] = RollingWindow.valueOf(b);
+            cdf[i++] = seen / (double) total;
+        }
+        cdf[used - 1] = 1.0;
+        return new EmpiricalDistribution(values, cdf, total, 1.0);
+    }
+
+    /** All mass at {@code value}: what a median-only estimate amounts to. */
+    static EmpiricalDistribution pointMass(double value) {
+        return new EmpiricalDistribution(new double[]{value}, new double[]{1.0}, 0, 1.0);
+    }
+
+    /** The same shape with every value multiplied by {@code factor}. */
+    EmpiricalDistribution scaled(double factor) {
+        return new EmpiricalDistribution(values, cdf, samples, scale * factor);
+    }
+
+    /** The same shape moved so that its median is {@code medianMs}. */
+    EmpiricalDistribution withMedian(double medianMs) {
+        double median = quantile(0.5);
+        return median > 0 ? scaled(medianMs / median) : pointMass(medianMs);
+    }
+
+    double cdf(double x) {
+        // x / scale can round just below the largest value
+        if (x >= max()) return 1.0;
+        int i = Arrays.binarySearch(values, x / scale);
+        if (i >= 0) return cdf[i];
+        int below = -i - 2; // last value < x
+        return below >= 0 ? cdf[below] : 0.0;
+    }
+
+    double quantile(double q) {
+        for (int i = 0; i < cdf.length; i++) {
+            if (cdf[i] >= q) return values[i] * scale;
+        }
+        return max();
+    }
+
+    double min() {
+        return values[0] * scale;
+    }
+
+    double max() {
+        return values[values.length - 1] * scale;
+    }
+
+    long samples() {
+        return samples;
+    }
+
+    /** Equal when both describe the same distribution; how many samples it was taken from is not compared. */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EmpiricalDistribution)) return false;
+        EmpiricalDistribution other = (EmpiricalDistribution) o;
+        return Double.compare(scale, other.scale) == 0
+                && Arrays.equals(values, other.values)
+                && Arrays.equals(cdf, other.cdf);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(values) + Arrays.hashCode(cdf)) + Double.hashCode(scale);
+    }
+}
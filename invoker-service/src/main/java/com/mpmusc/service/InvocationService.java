@@ -1,5 +1,6 @@
 package com.mpmusc.service;
 
+import com.mpmusc.dto.LatencyStats;
 import com.mpmusc.dto.StartingRttRequest;
 import com.mpmusc.invoker.FunctionInvoker;
 import com.mpmusc.invoker.ProviderResponse;
@@ -11,7 +12,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
@@ -25,14 +25,23 @@ public class InvocationService {
     private final Map<String, FunctionInvoker> invokers;
     private final ProviderMetricRepository providerMetricRepository;
     private final ProviderAvgRttRepository providerAvgRttRepository;
+    private final MetricWriter metricWriter;
+    private final ProviderLatencyStats latencyStats;
+    private final PerformanceModelUpdater modelUpdater;
 
     @Autowired
     public InvocationService(Map<String, FunctionInvoker> invokers,
                              ProviderMetricRepository providerMetricRepository,
-                             ProviderAvgRttRepository providerAvgRttRepository) {
+                             ProviderAvgRttRepository providerAvgRttRepository,
+                             MetricWriter metricWriter,
+                             ProviderLatencyStats latencyStats,
+                             PerformanceModelUpdater modelUpdater) {
         this.invokers = invokers;
         this.providerMetricRepository = providerMetricRepository;
         this.providerAvgRttRepository = providerAvgRttRepository;
+        this.metricWriter = metricWriter;
+        this.latencyStats = latencyStats;
+        this.modelUpdater = modelUpdater;
     }
 
     public List<String> analyze(String provider, int count) {
@@ -58,7 +67,7 @@ public class InvocationService {
                 }
                 long rtt = System.currentTimeMillis() - start;
 
-                saveProviderMetric(p, rtt, resp, inv, inv.getConcurrency());
+                saveProviderMetric(p, rtt, resp, inv, inv.getConcurrency(), 1);
 
                 log.add(String.format("%s [%d ms, %s]",
                         p, rtt, resp.isSuccess() ? "OK" : "ERR"));
@@ -67,7 +76,8 @@ public class InvocationService {
         return log;
     }
 
-    private void saveProviderMetric(String providerName, long rtt, ProviderResponse resp, FunctionInvoker inv, int currentConcurrency) {
+    private void saveProviderMetric(String providerName, long rtt, ProviderResponse resp, FunctionInvoker inv, int currentConcurrency,
+                                    int tasks) {
         ProviderMetric m = new ProviderMetric();
         m.setProvider(providerName);
         m.setTotalTimeMs(rtt);
@@ -80,27 +90,54 @@ public class InvocationService {
         m.setRegion(inv.getRegion());
         m.setCost(inv.getEstimatedCost());
         m.setConcurrency(currentConcurrency);
-        providerMetricRepository.save(m);
+        m.setTasks(tasks);
+        m.recordFunctionResult(resp != null ? resp.getSummary() : null);
+        latencyStats.record(m);
+        metricWriter.submit(m);
+    }
+
+    public List<LatencyStats> latencyStats() {
+        return latencyStats.all();
+    }
+
+    public PerformanceModel performanceModel(boolean refresh) {
+        return refresh ? modelUpdater.refresh() : modelUpdater.current();
+    }
+
+    public Map<String, Object> metricWriterStats() {
+        return metricWriter.stats();
+    }
+
+    /**
+     * Cold start rate and cold vs warm RTT per provider and concurrency over the last {@code hours}.
+     */
+    public List<Map<String, Object>> coldStartStats(int hours) {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Object[] row : providerMetricRepository.findColdStartStatsSince(LocalDateTime.now().minusHours(hours))) {
+            long invocations = ((Number) row[2]).longValue();
+            long coldStarts = ((Number) row[3]).longValue();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("provider", row[0]);
+            entry.put("concurrency", row[1]);
+            entry.put("invocations", invocations);
+            entry.put("coldStarts", coldStarts);
+            entry.put("coldStartRate", invocations > 0 ? coldStarts / (double) invocations : 0.0);
+            entry.put("avgColdRttMs", row[4]);
+            entry.put("avgWarmRttMs", row[5]);
+            stats.add(entry);
+        }
+        return stats;
     }
 
     public Map<String, Object> schedule(String scheduleType) {
-        List<ProviderMetric> recent = providerMetricRepository.findSince(LocalDateTime.now().minusHours(1));
-
-        // Group by provider, compute averages
-        Map<String, Candidate> candidates = recent.stream()
-                .collect(Collectors.groupingBy(ProviderMetric::getProvider))
-                .entrySet().stream()
-                .map(e -> {
-                    String p = e.getKey();
-                    List<ProviderMetric> metrics = e.getValue();
-                    long avgRtt = (long) metrics.stream().mapToLong(ProviderMetric::getTotalTimeMs).average().orElse(Double.MAX_VALUE);
-                    double errRate = metrics.stream().filter(ProviderMetric::isError).count() / (double) metrics.size();
-                    BigDecimal avgCost = metrics.stream().map(ProviderMetric::getCost)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add)
-                            .divide(BigDecimal.valueOf(metrics.size()), RoundingMode.HALF_UP);
-                    return new Candidate(p, avgRtt, errRate, avgCost);
-                })
-                .collect(Collectors.toMap(Candidate::getProvider, c -> c));
+        // averages over the rolling window (last hour by default), kept in memory as metrics are recorded
+        Map<String, Candidate> candidates = new HashMap<>();
+        for (String p : invokers.keySet()) {
+            LatencyStats stats = latencyStats.stats(p);
+            if (stats.getCount() == 0) continue;
+            candidates.put(p, new Candidate(p, (long) stats.getMeanRttMs(), stats.getErrorRate(),
+                    BigDecimal.valueOf(stats.getMeanCost())));
+        }
 
         Candidate best = candidates.values().stream()
                 .sorted((a, b) -> a.compareBy(scheduleType, b))
@@ -164,33 +201,20 @@ public class InvocationService {
         Map<String, List<Long>> results = new ConcurrentHashMap<>();
         invokers.keySet().forEach(p -> results.put(p, Collections.synchronizedList(new ArrayList<>())));
 
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(invokers.size());
+        // The timer thread only starts invocations. Each provider keeps at most one in flight: a tick that comes
+        // while the previous invocation still runs starts right after it, as a late fixed-rate task would.
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
 
         long startTime = System.currentTimeMillis();
         long endTime = startTime + durationMs;
 
         for (String provider : invokers.keySet()) {
-            scheduler.scheduleAtFixedRate(() -> {
-                long now = System.currentTimeMillis();
-                if (now > endTime) {
-                    return; // stop once duration exceeded
-                }
-                try {
-                    long start = System.currentTimeMillis();
-                    FunctionInvoker functionInvoker = invokers.get(provider);
-                    ProviderResponse resp = functionInvoker.invoke("fake_employees_100k.csv");
-                    long rtt = System.currentTimeMillis() - start;
-                    saveProviderMetric(provider, rtt, resp, functionInvoker, functionInvoker.getConcurrency());
-
-                    if (resp.isSuccess()) {
-                        results.get(provider).add(rtt);
-                    } else {
-                        results.get(provider).add(-1L); // mark failure
-                    }
-                } catch (Exception e) {
-                    results.get(provider).add(-1L);
-                }
-            }, 0, intervalMs, TimeUnit.MILLISECONDS);
+            inFlight.put(provider, CompletableFuture.completedFuture(null));
+            scheduler.scheduleAtFixedRate(() -> inFlight.computeIfPresent(provider, (p, previous) -> previous
+                            .exceptionally(ex -> null)
+                            .thenCompose(ignored -> benchmarkSingleInvocation(provider, endTime, results))),
+                    0, intervalMs, TimeUnit.MILLISECONDS);
         }
 
         // Stop scheduler after duration
@@ -201,12 +225,36 @@ public class InvocationService {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        CompletableFuture.allOf(inFlight.values().toArray(new CompletableFuture[0])).exceptionally(ex -> null).join();
 
         return results;
     }
 
+    private CompletableFuture<Void> benchmarkSingleInvocation(String provider, long endTime, Map<String, List<Long>> results) {
+        if (System.currentTimeMillis() > endTime) {
+            return CompletableFuture.completedFuture(null); // stop once duration exceeded
+        }
+        long start = System.currentTimeMillis();
+        FunctionInvoker functionInvoker = invokers.get(provider);
+        return functionInvoker.invokeAsync("fake_employees_100k.csv").handle((resp, e) -> {
+            if (e != null) {
+                results.get(provider).add(-1L);
+                return null;
+            }
+            long rtt = System.currentTimeMillis() - start;
+            saveProviderMetric(provider, rtt, resp, functionInvoker, functionInvoker.getConcurrency(), 1);
+
+            if (resp.isSuccess()) {
+                results.get(provider).add(rtt);
+            } else {
+                results.get(provider).add(-1L); // mark failure
+            }
+            return null;
+        });
+    }
+
     public Map<String, List<Long>> benchmarkProviders_parallelFunctionRequests(String provider, int count) {
-        System.out.println("=== Starting benchmark for " + provider + " ===");
+        log.info("=== Starting benchmark for {} ===", provider);
         Map<String, List<Long>> results = new HashMap<>();
         results.put(provider, new ArrayList<>());
 
@@ -216,7 +264,6 @@ public class InvocationService {
 
         FunctionInvoker functionInvoker = invokers.get(provider);
         int originalConcurrency = functionInvoker.getConcurrency();
-        ExecutorService executor = Executors.newFixedThreadPool(count);
 
         while (System.currentTimeMillis() < endTime) {
             long iterationStart = System.currentTimeMillis();
@@ -225,26 +272,30 @@ public class InvocationService {
             // run count parallel requests
             List<CompletableFuture<Long>> futures = new ArrayList<>();
             for (int i = 0; i < count; i++) {
-                CompletableFuture<Long> future = CompletableFuture.supplyAsync(() -> {
-                    int currentConcurrency = remainingConcurrency.getAndDecrement();
-                    long start = System.currentTimeMillis();
-                    try {
-                        ProviderResponse resp = functionInvoker.invoke("fake_employees_100k.csv");
-                        long rtt = System.currentTimeMillis() - start;
-                        saveProviderMetric(provider, resp.isSuccess() ? rtt : -1L, resp, functionInvoker, currentConcurrency);
-                        return resp.isSuccess() ? rtt : -1L;
-                    } catch (Exception e) {
-                        ProviderResponse resp = new ProviderResponse(
+                int currentConcurrency = remainingConcurrency.getAndDecrement();
+                long start = System.currentTimeMillis();
+                // the invocation waits without a thread; its metric is queued for the batch writer
+                CompletableFuture<Long> future = functionInvoker.invokeAsync("fake_employees_100k.csv").handle((resp, ex) -> {
+                    if (ex != null) {
+                        Throwable e = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        ProviderResponse errResp = new ProviderResponse(
                                 "Error when invoking: " + e.getMessage(),
                                 false,
                                 e.getMessage(),
                                 -1L
                         );
-                        saveProviderMetric(provider, -1L, resp, functionInvoker, currentConcurrency);
                         log.error("{} | Error occurred at benchmarkProviders_parallelFunctionRequests: {}", provider, e.getMessage());
+                        saveProviderMetric(provider, -1L, errResp, functionInvoker, currentConcurrency, count);
                         return -1L;
                     }
-                }, executor);
+                    long rtt = System.currentTimeMillis() - start;
+                    if (resp.isSuccess() && !resp.isCacheHit()) {
+                        // count invocations ran together: the scheduler's model is keyed by tasks per provider
+                        modelUpdater.observe(provider, count, rtt);
+                    }
+                    saveProviderMetric(provider, resp.isSuccess() ? rtt : -1L, resp, functionInvoker, currentConcurrency, count);
+                    return resp.isSuccess() ? rtt : -1L;
+                });
                 futures.add(future);
             }
 
@@ -274,8 +325,7 @@ public class InvocationService {
             }
         }
 
-        executor.shutdown();
-        System.out.println("=== Finished benchmark for " + provider + " ===");
+        log.info("=== Finished benchmark for {} ===", provider);
         return results;
     }
 
@@ -0,0 +1,144 @@
+package com.mpmusc.service;
+
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * A provider's median RTT as a function of the number of tasks running on it, fitted to the measured medians.
+ * Inside the measured range the curve interpolates linearly between neighbouring points; below it, it stays at
+ * the first point (fewer tasks are not slower). Beyond the range the provider is saturated and tasks queue, so
+ * latency grows linearly with the tasks: the curve continues from the last point with the least-squares slope of
+ * the upper half of the points (never negative).
+ * <p>
+ * Bounds are 95% intervals. Inside the range their width comes from how well interpolation predicts each
+ * interior point from its neighbours; beyond it they are the prediction interval of the tail regression, which
+ * widens with the distance from the measured points.
+ */
+public final class LatencyCurve {
+
+    private static final double Z = 1.96;
+
+    private final int[] tasks;
+    private final double[] medians;
+    // tail regression over the upper half of the points
+    private final double slopeMs;
+    private final int tailPoints;
+    private final double tailMeanTasks;
+    private final double tailSxx;
+    private final double tailSigmaMs;
+    // leave-one-out error of interpolating interior points
+    private final double interpolationSigmaMs;
+
+    private LatencyCurve(int[] tasks, double[] medians) {
+        this.tasks = tasks;
+        this.medians = medians;
+        int m = tasks.length;
+
+        double sumSq = 0;
+        for (int i = 1; i < m - 1; i++) {
+            double w = (tasks[i] - tasks[i - 1]) / (double) (tasks[i + 1] - tasks[i - 1]);
+            double predicted = medians[i - 1] + w * (medians[i + 1] - medians[i - 1]);
+            sumSq += (medians[i] - predicted) * (medians[i] - predicted);
+        }
+        this.interpolationSigmaMs = m > 2 ? Math.sqrt(sumSq / (m - 2)) : 0.0;
+
+        int n = Math.min(m, Math.max(2, (m + 1) / 2));
+        int from = m - n;
+        double meanX = 0, meanY = 0;
+        for (int i = from; i < m; i++) {
+            meanX += tasks[i];
+            meanY += medians[i];
+        }
+        meanX /= n;
+        meanY /= n;
+        double sxx = 0, sxy = 0;
+        for (int i = from; i < m; i++) {
+            sxx += (tasks[i] - meanX) * (tasks[i] - meanX);
+            sxy += (tasks[i] - meanX) * (medians[i] - meanY);
+        }
+        double slope = sxx > 0 ? sxy / sxx : 0.0;
+        double intercept = meanY - slope * meanX;
+        double residuals = 0;
+        for (int i = from; i < m; i++) {
+            double r = medians[i] - (intercept + slope * tasks[i]);
+            residuals += r * r;
+        }
+        this.slopeMs = Math.max(0.0, slope);
+        this.tailPoints = n;
+        this.tailMeanTasks = meanX;
+        this.tailSxx = sxx;
+        this.tailSigmaMs = n > 2 ? Math.sqrt(residuals / (n - 2)) : interpolationSigmaMs;
+    }
+
+    /**
+     * The curve through {@code points} (tasks -> median ms, tasks >= 1), or null when there are none.
+     */
+    static LatencyCurve fit(NavigableMap<Integer, Double> points) {
+        NavigableMap<Integer, Double> usable = points.tailMap(1, true);
+        if (usable.isEmpty()) return null;
+        int[] tasks = new int[usable.size()];
+        double[] medians = new double[usable.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Double> e : usable.entrySet()) {
+            tasks[i] = e.getKey();
+            medians[i++] = e.getValue();
+        }
+        return new LatencyCurve(tasks, medians);
+    }
+
+    public Estimate estimate(int t) {
+        int m = tasks.length;
+        if (t > tasks[m - 1]) {
+            double median = medians[m - 1] + slopeMs * (t - tasks[m - 1]);
+            double spread = tailSxx > 0 ? (t - tailMeanTasks) * (t - tailMeanTasks) / tailSxx : 0.0;
+            double halfWidth = Z * tailSigmaMs * Math.sqrt(1 + 1.0 / tailPoints + spread);
+            return new Estimate(median, halfWidth, true);
+        }
+        double halfWidth = Z * interpolationSigmaMs;
+        if (t <= tasks[0]) {
+            return new Estimate(medians[0], halfWidth, t < tasks[0]);
+        }
+        int lo = 0, hi = m - 1; // tasks[lo] < t <= tasks[hi]
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (tasks[mid] < t) lo = mid;
+            else hi = mid;
+        }
+        if (tasks[hi] == t) return new Estimate(medians[hi], halfWidth, false);
+        double w = (t - tasks[lo]) / (double) (tasks[hi] - tasks[lo]);
+        return new Estimate(medians[lo] + w * (medians[hi] - medians[lo]), halfWidth, false);
+    }
+
+    public int getMinTasks() { return tasks[0]; }
+
+    public int getMaxTasks() { return tasks[tasks.length - 1]; }
+
+    public double getTailSlopeMs() { return slopeMs; }
+
+    public double getTailSigmaMs() { return tailSigmaMs; }
+
+    public double getInterpolationSigmaMs() { return interpolationSigmaMs; }
+
+    /** Median RTT estimate with its 95% interval; extrapolated when outside the measured task counts. */
+    public static final class Estimate {
+        private final double medianMs;
+        private final double lowerMs;
+        private final double upperMs;
+        private final boolean extrapolated;
+
+        Estimate(double medianMs, double halfWidthMs, boolean extrapolated) {
+            this.medianMs = medianMs;
+            this.lowerMs = Math.max(0.0, medianMs - halfWidthMs);
+            this.upperMs = medianMs + halfWidthMs;
+            this.extrapolated = extrapolated;
+        }
+
+        public double getMedianMs() { return medianMs; }
+
+        public double getLowerMs() { return lowerMs; }
+
+        public double getUpperMs() { return upperMs; }
+
+        public boolean isExtrapolated() { return extrapolated; }
+    }
+}
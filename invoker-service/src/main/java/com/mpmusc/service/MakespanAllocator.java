@@ -0,0 +1,115 @@
+package com.mpmusc.service;
+
+import java.util.Arrays;
+
+/**
+ * Min-makespan allocation of tasks to providers. {@code times[i][t]} is the estimated completion time of provider
+ * i running t tasks ({@code times[i][0] == 0}, infinite where there is no estimate); an allocation's makespan is the
+ * largest time among its providers.
+ * <p>
+ * The smallest feasible makespan is one of the table's values, so it is found by binary search over the sorted
+ * distinct values. A threshold T is feasible when the per-provider counts with time at most T can sum to the total:
+ * for curves that are monotone up to T those counts are a prefix and the check is a sum, otherwise it is a
+ * reachable-sums bitset. Among the optimal allocations the lexicographically smallest one (first provider
+ * fewest tasks) is returned, which is the one the exhaustive search picked. O(K log K + log K * n * L * C / 64) for
+ * K table values, n providers, L tasks per provider and C tasks; O(K log K) when the curves are monotone.
+ */
+final class MakespanAllocator {
+
+    private MakespanAllocator() {
+    }
+
+    /**
+     * The allocation (tasks per provider, in {@code times} order) with the smallest makespan, or all zeros if no
+     * allocation of {@code total} tasks has an estimate for every provider it uses.
+     */
+    static int[] allocate(double[][] times, int total) {
+        int n = times.length;
+        int[] allocation = new int[n];
+        if (total <= 0) return allocation;
+
+        double[] thresholds = Arrays.stream(times)
+                .flatMapToDouble(Arrays::stream)
+                .filter(t -> !Double.isInfinite(t) && !Double.isNaN(t))
+                .sorted()
+                .distinct()
+                .toArray();
+        int lo = 0, hi = thresholds.length - 1;
+        if (hi < 0 || !feasible(times, total, thresholds[hi])) return allocation;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (feasible(times, total, thresholds[mid])) hi = mid;
+            else lo = mid + 1;
+        }
+        double makespan = thresholds[lo];
+
+        // suffix[i]: task counts providers i..n-1 can take together within the makespan
+        long[][] suffix = new long[n + 1][];
+        suffix[n] = new long[words(total)];
+        suffix[n][0] = 1L;
+        for (int i = n - 1; i >= 0; i--) {
+            suffix[i] = new long[suffix[n].length];
+            for (int t = 0; t < times[i].length && t <= total; t++) {
+                if (times[i][t] <= makespan) shiftOr(suffix[i], suffix[i + 1], t, total);
+            }
+        }
+        int remaining = total;
+        for (int i = 0; i < n; i++) {
+            for (int t = 0; t < times[i].length && t <= remaining; t++) {
+                if (times[i][t] <= makespan && get(suffix[i + 1], remaining - t)) {
+                    allocation[i] = t;
+                    remaining -= t;
+                    break;
+                }
+            }
+        }
+        return allocation;
+    }
+
+    static boolean feasible(double[][] times, int total, double makespan) {
+        // monotone up to the threshold: each provider takes any count up to its largest one within it
+        long capacity = 0;
+        boolean prefixes = true;
+        for (double[] curve : times) {
+            int t = 0;
+            while (t + 1 < curve.length && curve[t + 1] <= makespan) t++;
+            for (int u = t + 2; u < curve.length && prefixes; u++) {
+                if (curve[u] <= makespan) prefixes = false;
+            }
+            capacity += t;
+        }
+        if (prefixes) return capacity >= total;
+
+        long[] reach = new long[words(total)];
+        reach[0] = 1L;
+        for (double[] curve : times) {
+            long[] next = new long[reach.length];
+            for (int t = 0; t < curve.length && t <= total; t++) {
+                if (curve[t] <= makespan) shiftOr(next, reach, t, total);
+            }
+            reach = next;
+        }
+        return get(reach, total);
+    }
+
+    private static int words(int total) {
+        return (total >>> 6) + 1;
+    }
+
+    private static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /** dst |= src << shift, keeping bits 0..total. */
+    private static void shiftOr(long[] dst, long[] src, int shift, int total) {
+        int wordShift = shift >>> 6, bitShift = shift & 63;
+        for (int w = dst.length - 1; w >= wordShift; w--) {
+            int s = w - wordShift;
+            long v = src[s] << bitShift;
+            if (bitShift != 0 && s > 0) v |= src[s - 1] >>> (64 - bitShift);
+            dst[w] |= v;
+        }
+        int lastBit = total & 63;
+        if (lastBit != 63) dst[dst.length - 1] &= (1L << (lastBit + 1)) - 1;
+    }
+}
@@ -0,0 +1,217 @@
+package com.mpmusc.service;
+
+import com.mpmusc.model.ProviderMetric;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists ProviderMetric rows off the invocation path. {@link #submit} only enqueues; a background thread
+ * drains the bounded queue and writes a JDBC batch, in one transaction, once {@code batch-size} rows are waiting
+ * or the oldest has waited {@code flush-interval-ms}. Ids are taken from the entity's sequence in blocks of
+ * {@link #ID_BLOCK} (pooled-lo: nextval is the first id of the block), so a batch needs no id round trips.
+ * <p>
+ * A full queue is backpressure: submit waits up to {@code offer-timeout-ms} for room and then drops the row.
+ * Both are counted in {@link #stats()}. Rows reach the table up to one flush interval after the invocation.
+ */
+@Component
+@Slf4j
+public class MetricWriter {
+
+    // allocationSize of ProviderMetric's sequence generator
+    static final int ID_BLOCK = 50;
+
+    private static final String INSERT = "INSERT INTO provider_metrics_2 (id, provider, total_time_ms, "
+            + "execution_time_ms, is_error, error_msg, region, cost, concurrency, recorded_at, row_count, "
+            + "open_nanos, scan_nanos, finalize_nanos, container_id, invocation_sequence, cold_start, jvm_init_millis, tasks, "
+            + "cache_hit) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String NEXT_ID_BLOCK = "SELECT nextval('provider_metrics_2_seq')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<ProviderMetric> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong backpressured = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+
+    // owned by the writer thread
+    private long nextId;
+    private long idBlockEnd;
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    public MetricWriter(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${invoker.metrics.queue-capacity:10000}") int queueCapacity,
+                        @Value("${invoker.metrics.batch-size:200}") int batchSize,
+                        @Value("${invoker.metrics.flush-interval-ms:1000}") long flushIntervalMs,
+                        @Value("${invoker.metrics.offer-timeout-ms:0}") long offerTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.offerTimeoutMs = Math.max(0, offerTimeoutMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::drain, "metric-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues {@code metric} for the next batch. Never blocks longer than {@code offer-timeout-ms}; returns false
+     * if the row was dropped because the queue stayed full.
+     */
+    public boolean submit(ProviderMetric metric) {
+        if (metric.getRecordedAt() == null) {
+            metric.setRecordedAt(LocalDateTime.now());
+        }
+        boolean queued = queue.offer(metric);
+        if (!queued) {
+            backpressured.incrementAndGet();
+            if (offerTimeoutMs > 0) {
+                try {
+                    queued = queue.offer(metric, offerTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if (!queued) {
+            if (dropped.incrementAndGet() % 1000 == 1) {
+                log.warn("Metric queue full, dropped {} metrics so far", dropped.get());
+            }
+            return false;
+        }
+        enqueued.incrementAndGet();
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        stats.put("maxQueueDepth", maxQueueDepth.get());
+        stats.put("enqueued", enqueued.get());
+        stats.put("written", written.get());
+        stats.put("batches", batches.get());
+        stats.put("backpressured", backpressured.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void drain() {
+        List<ProviderMetric> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ProviderMetric first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize && running) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0) break;
+                    ProviderMetric next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                if (!running) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                failed.addAndGet(batch.size());
+                log.error("Failed to write {} provider metrics: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<ProviderMetric> batch) {
+        for (ProviderMetric m : batch) {
+            if (m.getId() == null) {
+                m.setId(nextId());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT, batch, batch.size(), MetricWriter::bind));
+        written.addAndGet(batch.size());
+        batches.incrementAndGet();
+    }
+
+    private long nextId() {
+        if (nextId >= idBlockEnd) {
+            Long first = jdbcTemplate.queryForObject(NEXT_ID_BLOCK, Long.class);
+            nextId = first;
+            idBlockEnd = first + ID_BLOCK;
+        }
+        return nextId++;
+    }
+
+    private static void bind(PreparedStatement ps, ProviderMetric m) throws SQLException {
+        ps.setLong(1, m.getId());
+        ps.setString(2, m.getProvider());
+        ps.setObject(3, m.getTotalTimeMs(), Types.BIGINT);
+        ps.setObject(4, m.getExecutionTimeMs(), Types.BIGINT);
+        ps.setBoolean(5, m.isError());
+        ps.setString(6, m.getErrorMsg());
+        ps.setString(7, m.getRegion());
+        ps.setBigDecimal(8, m.getCost());
+        ps.setObject(9, m.getConcurrency(), Types.INTEGER);
+        ps.setTimestamp(10, m.getRecordedAt() != null ? Timestamp.valueOf(m.getRecordedAt()) : null);
+        ps.setObject(11, m.getRowCount(), Types.BIGINT);
+        ps.setObject(12, m.getOpenNanos(), Types.BIGINT);
+        ps.setObject(13, m.getScanNanos(), Types.BIGINT);
+        ps.setObject(14, m.getFinalizeNanos(), Types.BIGINT);
+        ps.setString(15, m.getContainerId());
+        ps.setObject(16, m.getInvocationSequence(), Types.BIGINT);
+        ps.setObject(17, m.getColdStart(), Types.BOOLEAN);
+        ps.setObject(18, m.getJvmInitMillis(), Types.BIGINT);
+        ps.setObject(19, m.getTasks(), Types.INTEGER);
+        ps.setObject(20, m.getCacheHit(), Types.BOOLEAN);
+    }
+}
@@ -0,0 +1,106 @@
+package com.mpmusc.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Immutable snapshot of the scheduler's performance model: the median RTT per provider and number of tasks
+ * running on it, and the {@link LatencyCurve} fitted to each provider's medians. Published as a whole by
+ * {@link PerformanceModelUpdater}; a plan reads one snapshot throughout.
+ */
+public final class PerformanceModel {
+
+    static final PerformanceModel EMPTY = new PerformanceModel(0, 0L, Collections.emptyMap(), Collections.emptyMap(),
+            Collections.emptyMap(), Collections.emptyMap());
+
+    private final long version;
+    private final long builtAtMillis;
+    // provider -> (tasks -> medianMs)
+    private final Map<String, NavigableMap<Integer, Double>> mediansMs;
+    // provider -> (tasks -> invocations the learned median is based on); absent where the table value is used
+    private final Map<String, NavigableMap<Integer, Long>> learnedSamples;
+    private final Map<String, LatencyCurve> curves;
+    // RTT distribution of each provider over all task counts (from the metrics), and where enough invocations were
+    // observed, per task count; not serialized
+    private final Map<String, EmpiricalDistribution> shapes;
+    private final Map<String, Map<Integer, EmpiricalDistribution>> observed;
+
+    PerformanceModel(long version, long builtAtMillis,
+                     Map<String, NavigableMap<Integer, Double>> mediansMs,
+                     Map<String, NavigableMap<Integer, Long>> learnedSamples,
+                     Map<String, EmpiricalDistribution> shapes,
+                     Map<String, Map<Integer, EmpiricalDistribution>> observed) {
+        this.version = version;
+        this.builtAtMillis = builtAtMillis;
+        this.mediansMs = frozen(mediansMs);
+        this.learnedSamples = frozen(learnedSamples);
+        Map<String, LatencyCurve> fitted = new TreeMap<>();
+        this.mediansMs.forEach((provider, points) -> {
+            LatencyCurve curve = LatencyCurve.fit(points);
+            if (curve != null) fitted.put(provider, curve);
+        });
+        this.curves = Collections.unmodifiableMap(fitted);
+        this.shapes = Collections.unmodifiableMap(new TreeMap<>(shapes));
+        Map<String, Map<Integer, EmpiricalDistribution>> observedCopy = new TreeMap<>();
+        observed.forEach((provider, byTasks) -> observedCopy.put(provider, Collections.unmodifiableMap(new TreeMap<>(byTasks))));
+        this.observed = Collections.unmodifiableMap(observedCopy);
+    }
+
+    /**
+     * The provider's latency curve at {@code tasks}; empty when nothing was measured for the provider.
+     */
+    public Optional<LatencyCurve.Estimate> estimate(String provider, int tasks) {
+        LatencyCurve curve = curves.get(provider);
+        return curve != null ? Optional.of(curve.estimate(Math.max(1, tasks))) : Optional.empty();
+    }
+
+    /**
+     * The RTT distribution of one invocation while {@code tasks} run on {@code provider}: the observed one where
+     * there is enough data, otherwise the provider's distribution moved to the curve's median for {@code tasks}
+     * (a point mass at the median when the provider has no RTTs recorded). Null without any estimate.
+     */
+    EmpiricalDistribution distribution(String provider, int tasks) {
+        Map<Integer, EmpiricalDistribution> byTasks = observed.get(provider);
+        EmpiricalDistribution exact = byTasks != null ? byTasks.get(tasks) : null;
+        if (exact != null) return exact;
+        Optional<Double> median = medianMs(provider, tasks);
+        if (!median.isPresent()) return null;
+        EmpiricalDistribution shape = shapes.get(provider);
+        return shape != null ? shape.withMedian(median.get()) : EmpiricalDistribution.pointMass(median.get());
+    }
+
+    /**
+     * The median estimate for {@code tasks} (0 for no tasks); empty when nothing was measured for the provider.
+     */
+    public Optional<Double> medianMs(String provider, int tasks) {
+        if (tasks <= 0) return Optional.of(0.0);
+        return estimate(provider, tasks).map(LatencyCurve.Estimate::getMedianMs);
+    }
+
+    /**
+     * Whether {@code other} holds the same medians and RTT distributions, so that everything planned from one
+     * would be planned the same from the other. Versions, build times and sample counts are not compared.
+     */
+    boolean sameEstimates(PerformanceModel other) {
+        return mediansMs.equals(other.mediansMs) && shapes.equals(other.shapes) && observed.equals(other.observed);
+    }
+
+    public long getVersion() { return version; }
+
+    public long getBuiltAtMillis() { return builtAtMillis; }
+
+    public Map<String, NavigableMap<Integer, Double>> getMediansMs() { return mediansMs; }
+
+    public Map<String, NavigableMap<Integer, Long>> getLearnedSamples() { return learnedSamples; }
+
+    public Map<String, LatencyCurve> getCurves() { return curves; }
+
+    private static <V> Map<String, NavigableMap<Integer, V>> frozen(Map<String, NavigableMap<Integer, V>> source) {
+        Map<String, NavigableMap<Integer, V>> copy = new TreeMap<>();
+        source.forEach((provider, curve) -> copy.put(provider, Collections.unmodifiableNavigableMap(new TreeMap<>(curve))));
+        return Collections.unmodifiableMap(copy);
+    }
+}
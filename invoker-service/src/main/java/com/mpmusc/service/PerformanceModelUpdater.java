@@ -0,0 +1,147 @@
+package com.mpmusc.service;
+
+import com.mpmusc.dto.LatencyStats;
+import com.mpmusc.model.ProviderPerformance;
+import com.mpmusc.repository.ProviderPerformanceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the scheduler's performance model current. Completed invocations are observed as (provider, tasks running
+ * on it, RTT) into rolling-window histograms; every {@code refresh-seconds} a background thread rebuilds the model
+ * from the {@code provider_performance} table, replaces each entry that has at least {@code min-samples} recent
+ * observations with their median, attaches the RTT distributions (per task count where observed, and each
+ * provider's overall spread from the latency stats), and publishes the result atomically when its estimates
+ * differ from the current model's; otherwise the current model, version included, stays. Readers never lock
+ * and never see a model that is being built. Each published model is also sent as an application event, on the
+ * refreshing thread, for whatever is derived from it.
+ * <p>
+ * A task count means the same in every source: the {@code concurrency} column of {@code provider_performance},
+ * {@link com.mpmusc.model.ProviderMetric#getTasks()} and the per-task windows of {@link ProviderLatencyStats}. It is
+ * never a provider's remaining concurrency, which ProviderMetric keeps separately.
+ */
+@Component
+@Slf4j
+public class PerformanceModelUpdater {
+
+    private static final int WINDOW_BUCKETS = 12;
+
+    private final ProviderPerformanceRepository perfRepo;
+    private final ProviderLatencyStats latencyStats;
+    private final ApplicationEventPublisher events;
+    private final long refreshSeconds;
+    private final long minSamples;
+    private final long bucketMillis;
+    private final int buckets;
+
+    private final Map<String, Map<Integer, RollingWindow>> observations = new ConcurrentHashMap<>();
+    private final AtomicReference<PerformanceModel> model = new AtomicReference<>(PerformanceModel.EMPTY);
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "performance-model");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PerformanceModelUpdater(ProviderPerformanceRepository perfRepo,
+                                   ProviderLatencyStats latencyStats,
+                                   ApplicationEventPublisher events,
+                                   @Value("${invoker.model.refresh-seconds:30}") long refreshSeconds,
+                                   @Value("${invoker.model.min-samples:5}") long minSamples,
+                                   @Value("${invoker.model.window-minutes:60}") int windowMinutes) {
+        this.perfRepo = perfRepo;
+        this.latencyStats = latencyStats;
+        this.events = events;
+        this.refreshSeconds = Math.max(1, refreshSeconds);
+        this.minSamples = Math.max(1, minSamples);
+        this.bucketMillis = TimeUnit.MINUTES.toMillis(Math.max(1, windowMinutes)) / WINDOW_BUCKETS;
+        this.buckets = WINDOW_BUCKETS;
+    }
+
+    @PostConstruct
+    public void start() {
+        refresh();
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    /** The latest published model. */
+    public PerformanceModel current() {
+        return model.get();
+    }
+
+    /**
+     * Records one successful invocation that took {@code rttMs} while {@code tasks} invocations of the same plan ran
+     * on {@code provider}.
+     */
+    public void observe(String provider, int tasks, long rttMs) {
+        if (tasks <= 0 || rttMs < 0) return;
+        observations.computeIfAbsent(provider, p -> new ConcurrentHashMap<>())
+                .computeIfAbsent(tasks, t -> new RollingWindow(bucketMillis, buckets))
+                .record(System.currentTimeMillis(), rttMs, false, 0.0);
+    }
+
+    /**
+     * Rebuilds the model from the table and the recent observations and publishes it if it changed. Returns the
+     * current model either way.
+     */
+    public synchronized PerformanceModel refresh() {
+        Map<String, NavigableMap<Integer, Double>> medians = new HashMap<>();
+        for (ProviderPerformance pp : perfRepo.findAll()) {
+            if (pp.getProvider() == null || pp.getConcurrency() == null || pp.getMedianTimeMs() == null) continue;
+            medians.computeIfAbsent(pp.getProvider(), p -> new TreeMap<>()).put(pp.getConcurrency(), pp.getMedianTimeMs());
+        }
+
+        long now = System.currentTimeMillis();
+        Map<String, NavigableMap<Integer, Long>> learned = new HashMap<>();
+        Map<String, Map<Integer, EmpiricalDistribution>> observed = new HashMap<>();
+        observations.forEach((provider, byTasks) -> byTasks.forEach((tasks, window) -> {
+            LatencyStats stats = window.snapshot(now, new LatencyStats());
+            if (stats.getCount() < minSamples) return;
+            medians.computeIfAbsent(provider, p -> new TreeMap<>()).put(tasks, (double) stats.getP50Ms());
+            learned.computeIfAbsent(provider, p -> new TreeMap<>()).put(tasks, stats.getCount());
+            observed.computeIfAbsent(provider, p -> new HashMap<>())
+                    .put(tasks, EmpiricalDistribution.fromHistogram(window.histogram(now)));
+        }));
+
+        // each provider's RTT spread over all task counts, seeded from provider_metrics_2
+        Map<String, EmpiricalDistribution> shapes = new HashMap<>();
+        for (String provider : medians.keySet()) {
+            long[] histogram = latencyStats.histogram(provider);
+            EmpiricalDistribution shape = histogram != null ? EmpiricalDistribution.fromHistogram(histogram) : null;
+            if (shape != null && shape.samples() >= minSamples) shapes.put(provider, shape);
+        }
+
+        PerformanceModel current = model.get();
+        PerformanceModel next = new PerformanceModel(current.getVersion() + 1, now, medians, learned, shapes, observed);
+        if (next.sameEstimates(current)) return current;
+        model.set(next);
+        events.publishEvent(next);
+        return next;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the performance model, keeping version {}: {}", model.get().getVersion(), e.getMessage());
+        }
+    }
+}
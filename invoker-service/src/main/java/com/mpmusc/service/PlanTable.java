@@ -0,0 +1,119 @@
+package com.mpmusc.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The scheduler's allocations for every concurrency from 0 to the providers' total capacity, planned under one
+ * objective from one performance model snapshot. It is rebuilt whenever a new model is published, so a schedule
+ * only indexes into it; {@link #getModelVersion()} and {@link #getAgeMillis()} say which model a plan came from
+ * and how old it is. Immutable.
+ */
+public final class PlanTable {
+
+    private final PerformanceModel model;
+    private final String objective;
+    private final List<String> providers;
+    private final int[] limits;
+    private final int[][] allocations;     // [concurrency][provider], providers in invoker order
+    private final double[][] predictedMs;  // [concurrency] -> {mean, p50, p95, p99}; null where nothing is allocated
+    private final long builtAtMillis;
+    private final double buildTimeMs;
+
+    private PlanTable(PerformanceModel model, String objective, List<String> providers, int[] limits,
+                      int[][] allocations, double[][] predictedMs, long builtAtMillis, double buildTimeMs) {
+        this.model = model;
+        this.objective = objective;
+        this.providers = providers;
+        this.limits = limits;
+        this.allocations = allocations;
+        this.predictedMs = predictedMs;
+        this.builtAtMillis = builtAtMillis;
+        this.buildTimeMs = buildTimeMs;
+    }
+
+    /**
+     * Plans every concurrency up to the sum of {@code limits} (tasks per provider at most its limit). Allocations
+     * with no estimate for some provider they would use are all zeros.
+     */
+    static PlanTable build(PerformanceModel model, String objective, List<String> providers, int[] limits) {
+        long start = System.nanoTime();
+        int n = providers.size();
+        int capacity = 0;
+        for (int limit : limits) capacity += limit;
+
+        // dists[i][t]: RTT distribution of one invocation while provider i runs t tasks, null where there is none
+        EmpiricalDistribution[][] dists = new EmpiricalDistribution[n][];
+        for (int i = 0; i < n; i++) {
+            dists[i] = new EmpiricalDistribution[Math.min(limits[i], capacity) + 1];
+            for (int t = 1; t < dists[i].length; t++) dists[i][t] = model.distribution(providers.get(i), t);
+        }
+        DistributionPlanner planner = new DistributionPlanner(dists, capacity);
+
+        int[][] allocations;
+        if (DistributionPlanner.OBJECTIVE_MEDIAN.equals(objective)) {
+            // times[i][t]: estimated time of provider i running t tasks, infinite where there is no estimate
+            double[][] times = new double[n][];
+            for (int i = 0; i < n; i++) {
+                times[i] = new double[dists[i].length];
+                for (int t = 0; t < times[i].length; t++) {
+                    times[i][t] = model.medianMs(providers.get(i), t).orElse(Double.POSITIVE_INFINITY);
+                }
+            }
+            allocations = new int[capacity + 1][];
+            for (int c = 0; c <= capacity; c++) allocations[c] = MakespanAllocator.allocate(times, c);
+        } else {
+            allocations = planner.planAll(objective);
+        }
+
+        double[][] predicted = new double[capacity + 1][];
+        for (int c = 1; c <= capacity; c++) {
+            if (allocations[c] == null) allocations[c] = new int[n];
+            else if (sum(allocations[c]) > 0) predicted[c] = planner.makespan(allocations[c]);
+        }
+        return new PlanTable(model, objective, List.copyOf(providers), limits.clone(), allocations, predicted,
+                System.currentTimeMillis(), (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    /** Whether the table was planned for these providers, in this order, with these limits. */
+    boolean matches(List<String> providers, int[] limits) {
+        return this.providers.equals(providers) && Arrays.equals(this.limits, limits);
+    }
+
+    /** Tasks per provider (in {@link #getProviders()} order) for {@code concurrency} tasks. */
+    int[] allocation(int concurrency) {
+        return allocations[concurrency];
+    }
+
+    /** {mean, p50, p95, p99} of the predicted makespan for {@code concurrency} tasks, or null. */
+    double[] predictedMakespanMs(int concurrency) {
+        return predictedMs[concurrency];
+    }
+
+    /** The snapshot the table was planned from. */
+    PerformanceModel model() {
+        return model;
+    }
+
+    private static int sum(int[] allocation) {
+        int total = 0;
+        for (int t : allocation) total += t;
+        return total;
+    }
+
+    public long getModelVersion() { return model.getVersion(); }
+
+    public String getObjective() { return objective; }
+
+    public long getBuiltAtMillis() { return builtAtMillis; }
+
+    public long getAgeMillis() { return System.currentTimeMillis() - builtAtMillis; }
+
+    public double getBuildTimeMs() { return buildTimeMs; }
+
+    public List<String> getProviders() { return providers; }
+
+    public int getCapacity() { return allocations.length - 1; }
+
+    public int[][] getAllocations() { return allocations; }
+}
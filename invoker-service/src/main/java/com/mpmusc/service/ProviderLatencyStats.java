@@ -0,0 +1,119 @@
+package com.mpmusc.service;
+
+import com.mpmusc.dto.LatencyStats;
+import com.mpmusc.model.ProviderMetric;
+import com.mpmusc.repository.ProviderMetricRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling-window RTT percentiles, error rate and mean cost per provider and per (provider, tasks), kept in memory.
+ * Tasks are the invocations sent to the provider together ({@link ProviderMetric#getTasks()}), the same key the
+ * scheduler's performance model uses; rows recorded before that column existed only count towards the provider.
+ * Invocations answered from the function's result cache are left out: their RTT is mostly network.
+ * Every ProviderMetric the services record is added as it is created; at startup the window is seeded from the
+ * metrics table. Reads never touch the database.
+ */
+@Component
+@Slf4j
+public class ProviderLatencyStats {
+
+    private final ProviderMetricRepository providerMetricRepository;
+    private final long bucketMillis;
+    private final int buckets;
+    private final Map<String, ProviderWindows> windows = new ConcurrentHashMap<>();
+
+    public ProviderLatencyStats(ProviderMetricRepository providerMetricRepository,
+                                @Value("${invoker.stats.window-minutes:60}") int windowMinutes,
+                                @Value("${invoker.stats.bucket-seconds:300}") int bucketSeconds) {
+        this.providerMetricRepository = providerMetricRepository;
+        this.bucketMillis = TimeUnit.SECONDS.toMillis(Math.max(1, bucketSeconds));
+        this.buckets = (int) Math.max(1, TimeUnit.MINUTES.toMillis(windowMinutes) / bucketMillis);
+    }
+
+    @PostConstruct
+    public void seed() {
+        try {
+            List<ProviderMetric> recent = providerMetricRepository.findSince(
+                    LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(bucketMillis * buckets)));
+            recent.forEach(this::record);
+            log.info("Seeded latency stats with {} metrics", recent.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not seed latency stats from the metrics table: {}", e.getMessage());
+        }
+    }
+
+    public void record(ProviderMetric m) {
+        if (m.getProvider() == null || Boolean.TRUE.equals(m.getCacheHit())) return;
+        long timeMillis = m.getRecordedAt() != null
+                ? m.getRecordedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        long rtt = m.getTotalTimeMs() != null ? m.getTotalTimeMs() : -1L;
+        double cost = m.getCost() != null ? m.getCost().doubleValue() : 0.0;
+        ProviderWindows provider = windows.computeIfAbsent(m.getProvider(), p -> new ProviderWindows());
+        provider.all.record(timeMillis, rtt, m.isError(), cost);
+        if (m.getTasks() != null) {
+            provider.byTasks.computeIfAbsent(m.getTasks(), t -> new RollingWindow(bucketMillis, buckets))
+                    .record(timeMillis, rtt, m.isError(), cost);
+        }
+    }
+
+    /** All invocations of {@code provider} in the window. */
+    public LatencyStats stats(String provider) {
+        ProviderWindows providerWindows = windows.get(provider);
+        return snapshot(provider, null, providerWindows != null ? providerWindows.all : null);
+    }
+
+    /** The invocations of {@code provider} recorded while it ran {@code tasks} of them together. */
+    public LatencyStats stats(String provider, int tasks) {
+        ProviderWindows providerWindows = windows.get(provider);
+        return snapshot(provider, tasks, providerWindows != null ? providerWindows.byTasks.get(tasks) : null);
+    }
+
+    /** Successful RTTs of {@code provider} in the window, per {@link RollingWindow} bin; null if none were recorded. */
+    long[] histogram(String provider) {
+        ProviderWindows providerWindows = windows.get(provider);
+        return providerWindows != null ? providerWindows.all.histogram(System.currentTimeMillis()) : null;
+    }
+
+    /** Every provider, overall and per task count. */
+    public List<LatencyStats> all() {
+        List<LatencyStats> all = new ArrayList<>();
+        for (String provider : new TreeMap<>(windows).keySet()) {
+            all.add(stats(provider));
+            for (Integer tasks : new TreeMap<>(windows.get(provider).byTasks).keySet()) {
+                all.add(stats(provider, tasks));
+            }
+        }
+        return all;
+    }
+
+    private LatencyStats snapshot(String provider, Integer tasks, RollingWindow window) {
+        LatencyStats stats = new LatencyStats();
+        stats.setProvider(provider);
+        stats.setTasks(tasks);
+        if (window != null) {
+            window.snapshot(System.currentTimeMillis(), stats);
+        } else {
+            stats.setWindowSeconds(bucketMillis * buckets / 1000);
+            stats.setMeanRttMs(Double.MAX_VALUE);
+        }
+        return stats;
+    }
+
+    private final class ProviderWindows {
+        final RollingWindow all = new RollingWindow(bucketMillis, buckets);
+        final Map<Integer, RollingWindow> byTasks = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,90 @@
+package com.mpmusc.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Caps the invocations in flight per provider at the provider's concurrency limit, across all requests the
+ * service is handling. An invocation over the limit waits in a queue, not on a thread, and is started on the
+ * shared invoker executor as soon as an earlier one of the same provider completes.
+ */
+@Component
+public class ProviderPermits {
+
+    private final Executor executor;
+    private final Map<String, Permits> permits = new ConcurrentHashMap<>();
+
+    public ProviderPermits(@Qualifier("invokerExecutor") ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts {@code invocation} once {@code provider} has fewer than {@code limit} invocations in flight. The
+     * permit is held until the future returned by the invocation completes.
+     */
+    public <T> CompletableFuture<T> submit(String provider, int limit, Supplier<CompletableFuture<T>> invocation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Permits providerPermits = permits.computeIfAbsent(provider, p -> new Permits(Math.max(1, limit)));
+        providerPermits.acquire(() -> {
+            CompletableFuture<T> started;
+            try {
+                started = invocation.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            started.whenComplete((value, ex) -> {
+                providerPermits.release();
+                if (ex != null) {
+                    result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+        return result;
+    }
+
+    private final class Permits {
+        private final int limit;
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int running;
+
+        Permits(int limit) {
+            this.limit = limit;
+        }
+
+        void acquire(Runnable start) {
+            synchronized (this) {
+                if (running >= limit) {
+                    waiting.add(start);
+                    return;
+                }
+                running++;
+            }
+            start.run();
+        }
+
+        void release() {
+            Runnable next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    running--;
+                    return;
+                }
+            }
+            // the permit passes to the next invocation; start it off the completing (I/O) thread
+            executor.execute(next);
+        }
+    }
+}
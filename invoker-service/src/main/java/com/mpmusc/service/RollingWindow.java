@@ -0,0 +1,149 @@
+package com.mpmusc.service;
+
+import com.mpmusc.dto.LatencyStats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A ring of time buckets, each holding an RTT histogram and error and cost totals. Recording is lock-free: a
+ * bucket that has fallen out of the window is replaced by compare-and-set, and counts are atomic adds. Reading
+ * merges the live buckets, so its cost depends on the window's shape, not on the number of invocations.
+ * <p>
+ * The histogram is log-linear: exact below {@value #LINEAR_BINS} ms, then {@value #SUB_BINS} bins per power of
+ * two, which bounds the relative error of a percentile to 1/(2 * {@value #SUB_BINS}).
+ */
+final class RollingWindow {
+
+    static final int LINEAR_BINS = 64;
+    static final int SUB_BINS = 16;
+    private static final int LINEAR_BITS = 6;  // log2(LINEAR_BINS)
+    private static final int SUB_BITS = 4;     // log2(SUB_BINS)
+    private static final int MAX_BITS = 31;    // RTTs of 2^31 ms and above share the last bin
+    static final int BINS = LINEAR_BINS + (MAX_BITS - LINEAR_BITS) * SUB_BINS;
+
+    private final long bucketMillis;
+    private final AtomicReferenceArray<Bucket> ring;
+
+    RollingWindow(long bucketMillis, int buckets) {
+        this.bucketMillis = bucketMillis;
+        this.ring = new AtomicReferenceArray<>(buckets);
+    }
+
+    void record(long timeMillis, long rttMs, boolean error, double cost) {
+        long epoch = timeMillis / bucketMillis;
+        int slot = (int) (epoch % ring.length());
+        Bucket bucket = ring.get(slot);
+        while (bucket == null || bucket.epoch < epoch) {
+            Bucket fresh = new Bucket(epoch);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                bucket = fresh;
+                break;
+            }
+            bucket = ring.get(slot);
+        }
+        if (bucket.epoch != epoch) {
+            return; // older than the window: the slot already holds a later bucket
+        }
+        bucket.count.increment();
+        bucket.cost.add(cost);
+        if (error || rttMs < 0) {
+            bucket.errors.increment();
+        } else {
+            bucket.bins.incrementAndGet(binOf(rttMs));
+            bucket.rttSum.add(rttMs);
+        }
+    }
+
+    /**
+     * Fills the counters of {@code stats} from the buckets still inside the window at {@code nowMillis}.
+     */
+    LatencyStats snapshot(long nowMillis, LatencyStats stats) {
+        long oldest = oldestEpoch(nowMillis);
+        long[] bins = histogram(nowMillis);
+        long count = 0, errors = 0, successes = 0, rttSum = 0;
+        double cost = 0;
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket == null || bucket.epoch < oldest) continue;
+            count += bucket.count.sum();
+            errors += bucket.errors.sum();
+            rttSum += bucket.rttSum.sum();
+            cost += bucket.cost.sum();
+        }
+        for (long n : bins) successes += n;
+        stats.setWindowSeconds(bucketMillis * ring.length() / 1000);
+        stats.setCount(count);
+        stats.setErrorCount(errors);
+        stats.setErrorRate(count > 0 ? errors / (double) count : 0.0);
+        stats.setMeanCost(count > 0 ? cost / count : 0.0);
+        stats.setMeanRttMs(successes > 0 ? rttSum / (double) successes : Double.MAX_VALUE);
+        stats.setP50Ms(percentile(bins, successes, 0.50));
+        stats.setP95Ms(percentile(bins, successes, 0.95));
+        stats.setP99Ms(percentile(bins, successes, 0.99));
+        return stats;
+    }
+
+    /**
+     * Successful RTTs per bin ({@link #valueOf(int)}) over the buckets still inside the window at {@code nowMillis}.
+     */
+    long[] histogram(long nowMillis) {
+        long oldest = oldestEpoch(nowMillis);
+        long[] bins = new long[BINS];
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket == null || bucket.epoch < oldest) continue;
+            for (int b = 0; b < BINS; b++) {
+                bins[b] += bucket.bins.get(b);
+            }
+        }
+        return bins;
+    }
+
+    private long oldestEpoch(long nowMillis) {
+        return nowMillis / bucketMillis - ring.length() + 1;
+    }
+
+    static int binOf(long value) {
+        if (value < LINEAR_BINS) return (int) Math.max(0, value);
+        int bits = 63 - Long.numberOfLeadingZeros(value); // >= LINEAR_BITS
+        if (bits >= MAX_BITS) return BINS - 1;
+        int sub = (int) (value >>> (bits - SUB_BITS)) & (SUB_BINS - 1);
+        return LINEAR_BINS + (bits - LINEAR_BITS) * SUB_BINS + sub;
+    }
+
+    /** The middle of the values that fall into {@code bin}. */
+    static long valueOf(int bin) {
+        if (bin < LINEAR_BINS) return bin;
+        int bits = LINEAR_BITS + (bin - LINEAR_BINS) / SUB_BINS;
+        int sub = (bin - LINEAR_BINS) % SUB_BINS;
+        long width = 1L << (bits - SUB_BITS);
+        return (1L << bits) + sub * width + width / 2;
+    }
+
+    private static long percentile(long[] bins, long total, double q) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int b = 0; b < bins.length; b++) {
+            seen += bins[b];
+            if (seen >= rank) return valueOf(b);
+        }
+        return valueOf(bins.length - 1);
+    }
+
+    private static final class Bucket {
+        final long epoch;
+        final AtomicLongArray bins = new AtomicLongArray(BINS);
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rttSum = new LongAdder();
+        final DoubleAdder cost = new DoubleAdder();
+
+        Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
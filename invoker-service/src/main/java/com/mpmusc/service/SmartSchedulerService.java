@@ -1,79 +1,92 @@
 package com.mpmusc.service;
 
+import com.mpmusc.core.GenderDistributionMerger;
+import com.mpmusc.core.GenderDistributionRequest;
+import com.mpmusc.core.GenderDistributionResult;
+import com.mpmusc.dto.ScatterGatherResult;
 import com.mpmusc.dto.ScheduleResult;
 import com.mpmusc.invoker.FunctionInvoker;
 import com.mpmusc.invoker.ProviderResponse;
 import com.mpmusc.model.ProviderMetric;
-import com.mpmusc.model.ProviderPerformance;
-import com.mpmusc.repository.ProviderMetricRepository;
-import com.mpmusc.repository.ProviderPerformanceRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
-import java.util.stream.Collectors;
 
 /**
  * Core scheduler service that finds the allocation of tasks to providers (respecting provider concurrency limits)
- * which minimizes the makespan (total completion time).
+ * which minimizes the makespan (total completion time). The makespan is the slowest invocation, so the objective
+ * is one of its statistics under the model's RTT distributions: p95 (default), expected, or the makespan of the
+ * medians.
+ * <p>
+ * Allocations come from a {@link PlanTable} per objective covering every concurrency up to the providers' total
+ * capacity. The tables are rebuilt when the model updater publishes a new model, so a schedule only looks its
+ * allocation up; a table for an objective nobody used yet is built on its first request.
  */
 @Service
 @Slf4j
 public class SmartSchedulerService {
 
 
-    private final ProviderPerformanceRepository perfRepo;
-    private final ProviderMetricRepository providerMetricRepository;
-
-    // in-memory cache: provider -> (concurrency -> medianMs)
-    private final Map<String, NavigableMap<Integer, Double>> performanceCache = new HashMap<>();
+    private final MetricWriter metricWriter;
+    private final ProviderLatencyStats latencyStats;
+    private final ProviderPermits providerPermits;
+    // provider -> (tasks -> medianMs), learned from completed invocations and republished in the background
+    private final PerformanceModelUpdater modelUpdater;
+    private final String defaultObjective;
+    // the provider invokers the plan tables are precomputed for
+    private final Map<String, FunctionInvoker> invokers;
+    // objective -> allocations for every concurrency, planned from one model snapshot
+    private final Map<String, PlanTable> planTables = new ConcurrentHashMap<>();
+
+    public SmartSchedulerService(MetricWriter metricWriter,
+                                 ProviderLatencyStats latencyStats,
+                                 ProviderPermits providerPermits,
+                                 PerformanceModelUpdater modelUpdater,
+                                 @Value("${invoker.scheduler.objective:p95}") String defaultObjective,
+                                 Map<String, FunctionInvoker> invokers) {
+        this.metricWriter = metricWriter;
+        this.latencyStats = latencyStats;
+        this.providerPermits = providerPermits;
+        this.modelUpdater = modelUpdater;
+        this.defaultObjective = checkObjective(defaultObjective);
+        this.invokers = invokers;
+    }
 
-    public SmartSchedulerService(ProviderPerformanceRepository perfRepo,
-                                 ProviderMetricRepository providerMetricRepository) {
-        this.perfRepo = perfRepo;
-        this.providerMetricRepository = providerMetricRepository;
-        loadPerformanceCache();
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildPlanTables() {
+        rebuildPlanTables(modelUpdater.current());
     }
 
-    private void loadPerformanceCache() {
-        performanceCache.clear();
-        List<ProviderPerformance> all = perfRepo.findAll();
-        Map<String, List<ProviderPerformance>> byProvider = all.stream()
-                .collect(Collectors.groupingBy(ProviderPerformance::getProvider));
-        for (Map.Entry<String, List<ProviderPerformance>> e : byProvider.entrySet()) {
-            NavigableMap<Integer, Double> m = new TreeMap<>();
-            e.getValue().stream()
-                    .sorted(Comparator.comparingInt(ProviderPerformance::getConcurrency))
-                    .forEach(pp -> m.put(pp.getConcurrency(), pp.getMedianTimeMs()));
-            performanceCache.put(e.getKey(), m);
-        }
+    /** Replans the default objective and every objective already in use for a newly published model. */
+    @EventListener
+    public void onModelPublished(PerformanceModel model) {
+        rebuildPlanTables(model);
     }
 
-    private Optional<Double> getMedianMs(String provider, int tasks) {
-        if (tasks <= 0) return Optional.of(0.0);
-        NavigableMap<Integer, Double> map = performanceCache.get(provider);
-        if (map == null || map.isEmpty()) return Optional.empty();
-        if (map.containsKey(tasks)) return Optional.of(map.get(tasks));
-        Integer floor = map.floorKey(tasks);
-        if (floor != null) return Optional.of(map.get(floor));
-        return Optional.empty();
+    /** The current plan table of each objective planned so far. */
+    public Map<String, PlanTable> planTables() {
+        return new TreeMap<>(planTables);
     }
 
     /**
      * Persist a provider metric entry (same fields as your earlier method).
-     * This uses providerMetricRepository to store ProviderMetric.
+     * The row is queued for MetricWriter, which batches the inserts, so this never waits on the database.
      */
     private void saveProviderMetric(String providerName, long rtt, ProviderResponse resp,
-                                    FunctionInvoker inv, int currentConcurrency) {
+                                    FunctionInvoker inv, int currentConcurrency, int tasks) {
         try {
             ProviderMetric m = new ProviderMetric();
             m.setProvider(providerName);
@@ -84,8 +97,11 @@ public class SmartSchedulerService {
             m.setRegion(inv.getRegion());
             m.setCost(inv.getEstimatedCost() != null ? inv.getEstimatedCost() : BigDecimal.ZERO);
             m.setConcurrency(currentConcurrency);
+            m.setTasks(tasks);
             m.setRecordedAt(LocalDateTime.now());
-            providerMetricRepository.save(m);
+            m.recordFunctionResult(resp != null ? resp.getSummary() : null);
+            latencyStats.record(m);
+            metricWriter.submit(m);
         } catch (Exception ex) {
             log.error("Failed to save provider metric for {}: {}", providerName, ex.getMessage());
         }
@@ -95,39 +111,51 @@ public class SmartSchedulerService {
     public ScheduleResult computeAndExecute(int totalConcurrency,
                                             Map<String, FunctionInvoker> invokers,
                                             String invokePayloadFilename) {
+        return computeAndExecute(totalConcurrency, invokers, invokePayloadFilename, null);
+    }
+
+    /**
+     * Plans with {@code objective} (median, p95 or expected; null for the configured default) and executes the
+     * allocation.
+     */
+    public ScheduleResult computeAndExecute(int totalConcurrency,
+                                            Map<String, FunctionInvoker> invokers,
+                                            String invokePayloadFilename,
+                                            String objective) {
 
         if (totalConcurrency <= 0) {
             throw new IllegalArgumentException("concurrency must be >= 1");
         }
-
-        // --- 1) compute optimal allocation (enumeration) ---
-        List<String> providers = new ArrayList<>(invokers.keySet());
-        int n = providers.size();
-        int[] limits = new int[n];
-        for (int i = 0; i < n; i++) limits[i] = invokers.get(providers.get(i)).getConcurrency();
-
-        int totalCapacity = Arrays.stream(limits).sum();
-        if (totalConcurrency > totalCapacity) {
-            throw new IllegalArgumentException("Requested concurrency " + totalConcurrency +
-                    " exceeds total provider capacity " + totalCapacity);
-        }
-
-        double[] bestMakespan = {Double.MAX_VALUE};
-        int[] bestAlloc = new int[n];
-        int[] currentAlloc = new int[n];
-        enumerateAllocations(providers, limits, 0, totalConcurrency, currentAlloc, bestMakespan, bestAlloc);
-
-        // Build estimated result maps from bestAlloc
-        Map<String, Integer> allocation = new LinkedHashMap<>();
+        String planObjective = objective != null ? checkObjective(objective) : defaultObjective;
+
+        // --- 1) look up the optimal allocation (min-makespan plan table) ---
+        long planStart = System.nanoTime();
+        Plan plan = planAllocation(totalConcurrency, invokers, planObjective);
+        double decisionTimeMs = (System.nanoTime() - planStart) / 1_000_000.0;
+        Map<String, Integer> allocation = plan.allocation;
+        // estimates come from the snapshot the table was planned from, not a newer one published meanwhile
+        PerformanceModel model = plan.table.model();
+        long planAgeMs = plan.table.getAgeMillis();
+
+        // Build estimated result maps from the allocation
         Map<String, Double> providerEstimatedTimes = new LinkedHashMap<>();
+        Map<String, List<Double>> providerEstimateIntervals = new LinkedHashMap<>();
+        Map<String, Map<String, Double>> providerPredictedRtt = new LinkedHashMap<>();
         double estimatedCompletion = 0.0;
         int totalAssigned = 0;
-        for (int i = 0; i < n; i++) {
-            String p = providers.get(i);
-            int tasks = bestAlloc[i];
-            allocation.put(p, tasks);
-            Double t = getMedianMs(p, tasks).orElse(0.0);
+        for (Map.Entry<String, Integer> e : allocation.entrySet()) {
+            String p = e.getKey();
+            int tasks = e.getValue();
+            Double t = model.medianMs(p, tasks).orElse(0.0);
             providerEstimatedTimes.put(p, t);
+            if (tasks > 0) {
+                model.estimate(p, tasks).ifPresent(est ->
+                        providerEstimateIntervals.put(p, List.of(est.getLowerMs(), est.getUpperMs())));
+                EmpiricalDistribution d = model.distribution(p, tasks);
+                if (d != null) {
+                    providerPredictedRtt.put(p, percentiles(d.quantile(0.50), d.quantile(0.95), d.quantile(0.99)));
+                }
+            }
             estimatedCompletion = Math.max(estimatedCompletion, t);
             totalAssigned += tasks;
         }
@@ -136,8 +164,12 @@ public class SmartSchedulerService {
         if (totalAssigned == 0) {
             ScheduleResult empty = new ScheduleResult();
             empty.setAllocation(allocation);
+            empty.setPlanObjective(planObjective);
+            empty.setPlanTableVersion(plan.table.getModelVersion());
+            empty.setPlanTableAgeMs(planAgeMs);
             empty.setProviderEstimatedTimesMs(providerEstimatedTimes);
             empty.setEstimatedCompletionTimeMs(estimatedCompletion);
+            empty.setDecisionTimeMs(decisionTimeMs);
             empty.setProviderActualAvgRttMs(Collections.emptyMap());
             empty.setProviderSuccessCount(Collections.emptyMap());
             empty.setProviderFailureCount(Collections.emptyMap());
@@ -146,13 +178,13 @@ public class SmartSchedulerService {
         }
 
         // --- 2) Execute the allocation in parallel ---
-        // Reasonable pool size: allow full parallelism but cap to avoid excessive threads.
-        int cap = 200; // tuneable cap
-        int poolSize = Math.min(Math.max(1, totalAssigned), cap);
-        ExecutorService exec = Executors.newFixedThreadPool(poolSize);
+        // Invocations are asynchronous: they wait on the HTTP clients' I/O threads, not on a thread each.
+        // Concurrency is capped per provider at its limit (shared with other running schedules), and metrics
+        // are queued for the batch writer, so nothing on this path waits on the database.
 
-        // Per-provider aggregates (no storing all RTTs)
+        // Per-provider aggregates, plus this run's successful RTTs for comparing against the predicted percentiles
         Map<String, LongAdder> sumRtt = new ConcurrentHashMap<>();
+        Map<String, Queue<Long>> rtts = new ConcurrentHashMap<>();
         Map<String, AtomicInteger> successCount = new ConcurrentHashMap<>();
         Map<String, AtomicInteger> failureCount = new ConcurrentHashMap<>();
         Map<String, AtomicLong> maxRtt = new ConcurrentHashMap<>();
@@ -161,6 +193,7 @@ public class SmartSchedulerService {
         // initialize per-provider structures
         allocation.keySet().forEach(p -> {
             sumRtt.put(p, new LongAdder());
+            rtts.put(p, new ConcurrentLinkedQueue<>());
             successCount.put(p, new AtomicInteger(0));
             failureCount.put(p, new AtomicInteger(0));
             maxRtt.put(p, new AtomicLong(Long.MIN_VALUE));
@@ -178,43 +211,45 @@ public class SmartSchedulerService {
             final AtomicInteger remainingConcurrency = remainingConcurrencyMap.get(provider);
 
             for (int i = 0; i < count; i++) {
-                CompletableFuture<Void> fut = CompletableFuture.runAsync(() -> {
+                CompletableFuture<Void> fut = providerPermits.submit(provider, invoker.getConcurrency(), () -> {
                     // Capture remainingConcurrency just like your benchmark
-                    int currentConcurrency = remainingConcurrency.getAndDecrement();
-                    long startMs = System.currentTimeMillis();
-                    ProviderResponse resp = null;
-                    long rtt = -1L;
-                    try {
-                        resp = invoker.invoke(invokePayloadFilename);
-                        rtt = System.currentTimeMillis() - startMs;
-
-                        // save metric with the captured remainingConcurrency
-                        saveProviderMetric(provider, resp.isSuccess() ? rtt : -1L, resp, invoker, currentConcurrency);
-
+                    final int currentConcurrency = remainingConcurrency.getAndDecrement();
+                    final long startMs = System.currentTimeMillis();
+                    // the metric is only queued here; the batch writer persists it off the invocation path
+                    return invoker.invokeAsync(invokePayloadFilename).handle((resp, ex) -> {
+                        if (ex != null) {
+                            Throwable cause = unwrap(ex);
+                            // Build error ProviderResponse to save similar to your other code
+                            ProviderResponse errResp = new ProviderResponse(
+                                    "Error when invoking: " + cause.getMessage(),
+                                    false,
+                                    cause.getMessage(),
+                                    -1L
+                            );
+                            failureCount.get(provider).incrementAndGet();
+                            // log and continue
+                            log.error("Error invoking provider {} : {}", provider, cause.getMessage());
+                            saveProviderMetric(provider, -1L, errResp, invoker, currentConcurrency, count);
+                            return null;
+                        }
+                        long rtt = System.currentTimeMillis() - startMs;
                         if (resp.isSuccess()) {
                             sumRtt.get(provider).add(rtt);
+                            rtts.get(provider).add(rtt);
                             successCount.get(provider).incrementAndGet();
                             // update per-provider max and global max
                             maxRtt.get(provider).getAndAccumulate(rtt, Math::max);
                             globalMaxRtt.getAndAccumulate(rtt, Math::max);
+                            if (!resp.isCacheHit()) modelUpdater.observe(provider, count, rtt);
                         } else {
                             failureCount.get(provider).incrementAndGet();
                             // still update max? We only consider successful RTTs for actualCompletionTimeMs per your requirement.
                         }
-                    } catch (Exception ex) {
-                        // Build error ProviderResponse to save similar to your other code
-                        ProviderResponse errResp = new ProviderResponse(
-                                "Error when invoking: " + ex.getMessage(),
-                                false,
-                                ex.getMessage(),
-                                -1L
-                        );
-                        saveProviderMetric(provider, -1L, errResp, invoker, currentConcurrency);
-                        failureCount.get(provider).incrementAndGet();
-                        // log and continue
-                        log.error("Error invoking provider {} : {}", provider, ex.getMessage());
-                    }
-                }, exec);
+                        // save metric with the captured remainingConcurrency
+                        saveProviderMetric(provider, resp.isSuccess() ? rtt : -1L, resp, invoker, currentConcurrency, count);
+                        return null;
+                    });
+                });
                 allFutures.add(fut);
             }
         }
@@ -227,6 +262,7 @@ public class SmartSchedulerService {
         Map<String, Long> providerMax = new LinkedHashMap<>();
         Map<String, Integer> providerSuccessCount = new LinkedHashMap<>();
         Map<String, Integer> providerFailureCount = new LinkedHashMap<>();
+        Map<String, Map<String, Double>> providerActualRtt = new LinkedHashMap<>();
 
         boolean anySuccess = false;
         for (String p : allocation.keySet()) {
@@ -241,7 +277,12 @@ public class SmartSchedulerService {
             providerSuccessCount.put(p, succ);
             providerFailureCount.put(p, fail);
 
-            if (succ > 0) anySuccess = true;
+            if (succ > 0) {
+                anySuccess = true;
+                long[] sorted = rtts.get(p).stream().mapToLong(Long::longValue).sorted().toArray();
+                providerActualRtt.put(p, percentiles(nearestRank(sorted, 0.50), nearestRank(sorted, 0.95),
+                        nearestRank(sorted, 0.99)));
+            }
         }
 
         Double actualInvocationMaxMs = anySuccess ? (double) globalMaxRtt.get() : null;
@@ -249,56 +290,213 @@ public class SmartSchedulerService {
         // Build final ScheduleResult
         ScheduleResult sr = new ScheduleResult();
         sr.setAllocation(allocation);
+        sr.setPlanObjective(planObjective);
+        sr.setPlanTableVersion(plan.table.getModelVersion());
+        sr.setPlanTableAgeMs(planAgeMs);
         sr.setProviderEstimatedTimesMs(providerEstimatedTimes);
+        sr.setProviderEstimateIntervalsMs(providerEstimateIntervals);
         sr.setEstimatedCompletionTimeMs(estimatedCompletion);
+        sr.setPredictedMakespanMs(plan.predictedMakespanMs);
+        sr.setProviderPredictedRttMs(providerPredictedRtt);
+        sr.setDecisionTimeMs(decisionTimeMs);
 
         sr.setProviderActualAvgRttMs(providerActualAvg);
         sr.setProviderSuccessCount(providerSuccessCount);
         sr.setProviderFailureCount(providerFailureCount);
+        sr.setProviderActualRttMs(providerActualRtt);
         // actualCompletionTimeMs is the slowest single successful invocation RTT across all providers
         sr.setActualCompletionTimeMs(actualInvocationMaxMs);
 
-        // cleanup
-        exec.shutdownNow();
-
         return sr;
     }
 
     /**
-     * enumerateAllocations: same recursion method used previously to find best allocation.
-     * Provided here for completeness — keep the version you already use (prunes invalid allocations by missing medians).
+     * Splits one analysis of {@code filename} into {@code shards} row shards, spreads them over the providers
+     * with the same allocation the scheduler would use for that many concurrent tasks, and merges the raw counts
+     * the shards return. Shard invocations do less work than the benchmark runs, so they are not recorded as
+     * provider metrics.
      */
-    private void enumerateAllocations(List<String> providers, int[] limits,
-                                      int index, int remainingTasks, int[] currentAlloc,
-                                      double[] bestMakespan, int[] bestAlloc) {
-        int n = providers.size();
-        if (index == n) {
-            if (remainingTasks == 0) {
-                double makespan = 0.0;
-                for (int i = 0; i < n; i++) {
-                    String p = providers.get(i);
-                    int tasks = currentAlloc[i];
-                    Optional<Double> tOpt = getMedianMs(p, tasks);
-                    if (!tOpt.isPresent()) {
-                        makespan = Double.MAX_VALUE;
-                        break;
+    public ScatterGatherResult scatterGather(int shards, Map<String, FunctionInvoker> invokers, String filename) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("shards must be >= 1");
+        }
+        long startMs = System.currentTimeMillis();
+        Plan plan = planAllocation(shards, invokers, defaultObjective);
+        Map<String, Integer> allocation = plan.allocation;
+        PerformanceModel model = plan.table.model();
+
+        // consecutive shard indexes per provider, in allocation order
+        Map<String, List<Integer>> shardAssignments = new LinkedHashMap<>();
+        double estimatedCompletion = 0.0;
+        int nextShard = 0;
+        for (Map.Entry<String, Integer> e : allocation.entrySet()) {
+            List<Integer> assigned = new ArrayList<>(e.getValue());
+            for (int i = 0; i < e.getValue(); i++) assigned.add(nextShard++);
+            shardAssignments.put(e.getKey(), assigned);
+            estimatedCompletion = Math.max(estimatedCompletion, model.medianMs(e.getKey(), e.getValue()).orElse(0.0));
+        }
+
+        GenderDistributionResult[] partials = new GenderDistributionResult[shards];
+        List<CompletableFuture<Void>> futures = new ArrayList<>(shards);
+        for (Map.Entry<String, List<Integer>> e : shardAssignments.entrySet()) {
+            final String provider = e.getKey();
+            final FunctionInvoker invoker = invokers.get(provider);
+            for (final int shard : e.getValue()) {
+                GenderDistributionRequest request = new GenderDistributionRequest(filename);
+                request.setShardIndex(shard);
+                request.setShardCount(shards);
+                request.setRawCounts(true);
+                futures.add(providerPermits.submit(provider, invoker.getConcurrency(),
+                        () -> invoker.invokeAsync(request)).handle((resp, ex) -> {
+                    if (ex != null) {
+                        log.error("Error invoking shard {} on provider {} : {}", shard, provider, unwrap(ex).getMessage());
+                        return null;
                     }
-                    makespan = Math.max(makespan, tOpt.get());
-                    if (makespan >= bestMakespan[0]) break;
-                }
-                if (makespan < bestMakespan[0]) {
-                    bestMakespan[0] = makespan;
-                    System.arraycopy(currentAlloc, 0, bestAlloc, 0, n);
+                    GenderDistributionResult partial = resp.getResult();
+                    if (resp.isSuccess() && partial != null && partial.getError() == null) {
+                        partials[shard] = partial;
+                    } else {
+                        log.error("Shard {} failed on provider {}: {}", shard, provider,
+                                partial != null && partial.getError() != null ? partial.getError() : resp.getErrorMsg());
+                    }
+                    return null;
+                }));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        List<Integer> failedShards = new ArrayList<>();
+        List<GenderDistributionResult> completed = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            if (partials[i] == null) failedShards.add(i);
+            else completed.add(partials[i]);
+        }
+
+        ScatterGatherResult result = new ScatterGatherResult();
+        result.setShardCount(shards);
+        result.setAllocation(allocation);
+        result.setShardAssignments(shardAssignments);
+        result.setEstimatedCompletionTimeMs(estimatedCompletion);
+        result.setFailedShards(failedShards);
+        // percentages over only some of the shards would be wrong, so they are merged only when all came back
+        if (failedShards.isEmpty()) {
+            result.setResult(GenderDistributionMerger.merge(completed));
+        }
+        result.setActualCompletionTimeMs((double) (System.currentTimeMillis() - startMs));
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    private static String checkObjective(String objective) {
+        switch (objective) {
+            case DistributionPlanner.OBJECTIVE_MEDIAN:
+            case DistributionPlanner.OBJECTIVE_P95:
+            case DistributionPlanner.OBJECTIVE_EXPECTED:
+                return objective;
+            default:
+                throw new IllegalArgumentException("objective must be one of median, p95, expected: " + objective);
+        }
+    }
+
+    private static Map<String, Double> percentiles(double p50, double p95, double p99) {
+        Map<String, Double> m = new LinkedHashMap<>();
+        m.put("p50", p50);
+        m.put("p95", p95);
+        m.put("p99", p99);
+        return m;
+    }
+
+    private static double nearestRank(long[] sorted, double q) {
+        return sorted[Math.max(0, (int) Math.ceil(q * sorted.length) - 1)];
+    }
+
+    /**
+     * Looks up the allocation of {@code totalConcurrency} tasks to providers that minimizes {@code objective},
+     * keyed by provider in invoker order, together with the makespan distribution the model predicts for it.
+     */
+    private Plan planAllocation(int totalConcurrency, Map<String, FunctionInvoker> invokers, String objective) {
+        List<String> providers = new ArrayList<>(invokers.keySet());
+        int[] limits = limits(invokers, providers);
+        int totalCapacity = Arrays.stream(limits).sum();
+        if (totalConcurrency > totalCapacity) {
+            throw new IllegalArgumentException("Requested concurrency " + totalConcurrency +
+                    " exceeds total provider capacity " + totalCapacity);
+        }
+
+        PlanTable table = planTable(objective, providers, limits);
+        int[] bestAlloc = table.allocation(totalConcurrency);
+        Map<String, Integer> allocation = new LinkedHashMap<>();
+        for (int i = 0; i < providers.size(); i++) allocation.put(providers.get(i), bestAlloc[i]);
+
+        double[] makespan = table.predictedMakespanMs(totalConcurrency);
+        Map<String, Double> predicted = null;
+        if (makespan != null) {
+            predicted = new LinkedHashMap<>();
+            predicted.put("mean", makespan[0]);
+            predicted.putAll(percentiles(makespan[1], makespan[2], makespan[3]));
+        }
+        return new Plan(table, allocation, predicted);
+    }
+
+    /**
+     * The plan table of {@code objective} for these providers. The precomputed one is used when it was planned
+     * for them; otherwise one is planned from the current model, and kept when they are the configured invokers.
+     */
+    private PlanTable planTable(String objective, List<String> providers, int[] limits) {
+        PlanTable table = planTables.get(objective);
+        if (table != null && table.matches(providers, limits)) return table;
+        synchronized (planTables) {
+            table = planTables.get(objective);
+            if (table != null && table.matches(providers, limits)) return table;
+            table = PlanTable.build(modelUpdater.current(), objective, providers, limits);
+            List<String> configured = new ArrayList<>(invokers.keySet());
+            if (table.matches(configured, limits(invokers, configured))) planTables.put(objective, table);
+            return table;
+        }
+    }
+
+    private void rebuildPlanTables(PerformanceModel model) {
+        List<String> providers = new ArrayList<>(invokers.keySet());
+        int[] limits = limits(invokers, providers);
+        synchronized (planTables) {
+            Set<String> objectives = new TreeSet<>(planTables.keySet());
+            objectives.add(defaultObjective);
+            for (String objective : objectives) {
+                PlanTable current = planTables.get(objective);
+                if (current != null && current.getModelVersion() >= model.getVersion()
+                        && current.matches(providers, limits)) continue;
+                try {
+                    PlanTable table = PlanTable.build(model, objective, providers, limits);
+                    planTables.put(objective, table);
+                    log.debug("Planned {} allocations for model version {} in {} ms", objective,
+                            model.getVersion(), table.getBuildTimeMs());
+                } catch (RuntimeException e) {
+                    log.warn("Could not plan {} allocations for model version {}, keeping the previous table: {}",
+                            objective, model.getVersion(), e.getMessage());
                 }
             }
-            return;
         }
+    }
+
+    private static int[] limits(Map<String, FunctionInvoker> invokers, List<String> providers) {
+        int[] limits = new int[providers.size()];
+        for (int i = 0; i < limits.length; i++) limits[i] = invokers.get(providers.get(i)).getConcurrency();
+        return limits;
+    }
+
+    private static final class Plan {
+        private final PlanTable table;
+        private final Map<String, Integer> allocation;
+        // mean, p50, p95, p99 of the predicted makespan; null when nothing is allocated
+        private final Map<String, Double> predictedMakespanMs;
 
-        int maxForProvider = Math.min(remainingTasks, limits[index]);
-        for (int t = 0; t <= maxForProvider; t++) {
-            currentAlloc[index] = t;
-            enumerateAllocations(providers, limits, index + 1, remainingTasks - t, currentAlloc, bestMakespan, bestAlloc);
+        private Plan(PlanTable table, Map<String, Integer> allocation, Map<String, Double> predictedMakespanMs) {
+            this.table = table;
+            this.allocation = allocation;
+            this.predictedMakespanMs = predictedMakespanMs;
         }
-        currentAlloc[index] = 0;
     }
-}
\ No newline at end of file
+}
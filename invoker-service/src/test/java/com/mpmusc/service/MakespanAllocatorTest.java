@@ -0,0 +1,103 @@
+package com.mpmusc.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class MakespanAllocatorTest {
+
+    private static final double NONE = Double.POSITIVE_INFINITY;
+
+    @Test
+    void matchesExhaustiveSearchOnRandomTables() {
+        Random random = new Random(2024);
+        for (int round = 0; round < 2_000; round++) {
+            double[][] times = randomTable(random);
+            int capacity = 0;
+            for (double[] curve : times) capacity += curve.length - 1;
+
+            for (int total = 0; total <= capacity + 1; total++) {
+                int[] expected = exhaustive(times, total);
+                int[] actual = MakespanAllocator.allocate(times, total);
+                assertArrayEquals(expected, actual, () -> "times " + Arrays.deepToString(times));
+            }
+        }
+    }
+
+    @Test
+    void breaksTiesTowardsFewerTasksOnEarlierProviders() {
+        double[][] times = {
+                {0, 10, 10, 10},
+                {0, 10, 10, 10},
+                {0, 10, 10, 10},
+        };
+
+        assertArrayEquals(new int[]{0, 1, 3}, MakespanAllocator.allocate(times, 4));
+        assertArrayEquals(new int[]{0, 0, 1}, MakespanAllocator.allocate(times, 1));
+    }
+
+    @Test
+    void returnsZerosWhenNoAllocationHasAnEstimate() {
+        double[][] times = {
+                {0, NONE, NONE},
+                {0, 5},
+        };
+
+        assertArrayEquals(new int[]{0, 0}, MakespanAllocator.allocate(times, 2));
+        assertArrayEquals(new int[]{0, 1}, MakespanAllocator.allocate(times, 1));
+    }
+
+    /**
+     * Up to four providers with up to five tasks each. Times come from a small range so that ties are common; some
+     * curves are monotone, others are not, and some entries have no estimate.
+     */
+    private static double[][] randomTable(Random random) {
+        int n = 1 + random.nextInt(4);
+        double[][] times = new double[n][];
+        for (int i = 0; i < n; i++) {
+            times[i] = new double[1 + random.nextInt(6)];
+            boolean monotone = random.nextBoolean();
+            for (int t = 1; t < times[i].length; t++) {
+                if (random.nextInt(8) == 0) {
+                    times[i][t] = NONE;
+                } else if (monotone) {
+                    double previous = Double.isInfinite(times[i][t - 1]) ? 0 : times[i][t - 1];
+                    times[i][t] = previous + random.nextInt(3);
+                } else {
+                    times[i][t] = 1 + random.nextInt(6);
+                }
+            }
+        }
+        return times;
+    }
+
+    /** Tries every allocation in lexicographic order and keeps the first one with the smallest makespan. */
+    private static int[] exhaustive(double[][] times, int total) {
+        int[] best = new int[times.length];
+        double[] bestMakespan = {NONE};
+        enumerate(times, total, 0, new int[times.length], best, bestMakespan);
+        return best;
+    }
+
+    private static void enumerate(double[][] times, int remaining, int provider, int[] current, int[] best,
+                                  double[] bestMakespan) {
+        if (provider == times.length) {
+            if (remaining != 0) return;
+            double makespan = 0;
+            for (int i = 0; i < times.length; i++) makespan = Math.max(makespan, times[i][current[i]]);
+            if (makespan < bestMakespan[0]) {
+                bestMakespan[0] = makespan;
+                System.arraycopy(current, 0, best, 0, current.length);
+            }
+            return;
+        }
+        for (int t = 0; t < times[provider].length && t <= remaining; t++) {
+            current[provider] = t;
+            enumerate(times, remaining - t, provider + 1, current, best, bestMakespan);
+        }
+        current[provider] = 0;
+    }
+}
@@ -6,7 +6,7 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.mpmusc.core.GenderDistributionRequest;
 import com.mpmusc.core.GenderDistributionResult;
-import com.mpmusc.core.GenderDistributionService;
+import com.mpmusc.core.AnalysisEngine;
 
 
 public class GenderOpenWhisk {
@@ -16,7 +16,7 @@ public class GenderOpenWhisk {
         // Convert input JSON to GenderDistributionRequest
         GenderDistributionRequest input = gson.fromJson(args, GenderDistributionRequest.class);
         // Analyze the data
-        GenderDistributionResult result = new GenderDistributionService().analyze(input);
+        GenderDistributionResult result = AnalysisEngine.analyze(input);
         // Convert result object back to JsonObject
         return gson.toJsonTree(result).getAsJsonObject();
     }